@@ -0,0 +1,241 @@
+package sudokuGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * {@code AdaptiveSelection} is a {@link TournamentSelection} that change the probability
+ * to apply crossover and mutation while we evolve, according to the progress that every
+ * operation gives, instead of the fixed probabilities that we choose in the {@link Driver}.
+ *
+ * <p>We look at the operations as arms of a bandit: crossover only, mutation only,
+ * and crossover then mutation. For every new individual we choose an arm with the current
+ * probabilities, or we copy the parent as is with the fixed probability that
+ * {@link TournamentSelection} copy him (neither crossover nor mutation), so the good individuals
+ * can survive to the next generation like before. In the next generation (after the new individuals evaluated) the reward of
+ * the arm is the improvement of the child fitness over his parent fitness, per evaluation
+ * (every child cost one evaluation). The quality of every arm is an exponential moving average
+ * of his rewards, and the probabilities are matching the qualities
+ * (probability matching), with a minimum probability for every arm so we never stop to explore.
+ * A child that is already evaluated when we create him (a copy of his parent, or an operation that was
+ * rejected by the tree limits) didn't cost an evaluation, so he doesn't reward or penalize any arm.
+ *
+ * <p>The {@link #getMutationProb() mutation probability} and the {@link #getCrossoverProb()
+ * crossover probability} are the current probabilities that an individual get mutation or crossover,
+ * so the {@link Evolution} can log them in the report in every generation.
+ * @see TournamentSelection
+ * @see Selection
+ */
+public class AdaptiveSelection extends TournamentSelection {
+
+    /** Arm of crossover only */
+    private static final int CROSSOVER = 0;
+
+    /** Arm of mutation only */
+    private static final int MUTATION = 1;
+
+    /** Arm of crossover and then mutation */
+    private static final int BOTH = 2;
+
+    /** Copy the parent as is, it isn't learned, his probability is fixed */
+    private static final int COPY = 3;
+
+    /** The amount of the arms that we learn (crossover, mutation and both) */
+    private static final int LEARNED_ARMS = 3;
+
+    /** The minimum probability of every arm */
+    private static final double MIN_PROB = 0.1;
+
+    /** The weight of the new rewards in the moving average of the arms qualities */
+    private static final double ADAPTATION_RATE = 0.3;
+
+    /** The quality of every learned arm, moving average of his rewards */
+    private final double[] quality = new double[LEARNED_ARMS];
+
+    /** The current probability of every arm, the learned arms and the copy */
+    private final double[] armProb = new double[LEARNED_ARMS + 1];
+
+    /** The fixed probability to copy the parent as is */
+    private final double copyProb;
+
+    /** The new individuals of the current generation that we didn't reward their arm yet */
+    private final List<Individual> pendingChildren = new ArrayList<>();
+
+    /** The arm that created every pending child */
+    private final List<Integer> pendingArms = new ArrayList<>();
+
+    /** The fitness of the parent of every pending child */
+    private final List<Integer> pendingParentFitness = new ArrayList<>();
+
+    /** The population that we saw in the last call, so we know when a new generation start */
+    private Individual[] lastPopulation;
+
+
+    /**
+     * Initialize the class member, the first probabilities of the arms are calculated from the
+     * gaven probabilities, like they were independent, so in the first generation we behave like
+     * {@link TournamentSelection}, and the probability to copy the parent never change.
+     * @param mutationProb is the initial probability to apply mutation
+     * @param crossoverProb is the initial probability to apply crossover
+     * @param goodPopulationPercent is the percent of the population that
+     *                              we matting with it in crossover method
+     */
+    public AdaptiveSelection(double mutationProb, double crossoverProb, double goodPopulationPercent) {
+        super(mutationProb, crossoverProb, goodPopulationPercent);
+        copyProb = (1 - crossoverProb) * (1 - mutationProb);
+        quality[CROSSOVER] = crossoverProb * (1 - mutationProb);
+        quality[MUTATION] = mutationProb * (1 - crossoverProb);
+        quality[BOTH] = crossoverProb * mutationProb;
+        updateProbabilities();
+    }
+
+
+    /**
+     * Returns the current probability that an individual get mutation (mutation only, or both).
+     * @return the current mutation probability.
+     */
+    @Override
+    public synchronized double getMutationProb() {
+        return armProb[MUTATION] + armProb[BOTH];
+    }
+
+
+    /**
+     * Returns the current probability that an individual get crossover (crossover only, or both).
+     * @return the current crossover probability.
+     */
+    @Override
+    public synchronized double getCrossoverProb() {
+        return armProb[CROSSOVER] + armProb[BOTH];
+    }
+
+
+    /**
+     * Choose an arm with the current probabilities and apply it on the player p1,
+     * if the population is a new generation (or a new snapshot of the steady state) we first reward the arms.
+     * Only the bookkeeping (the rewards, the arm and the pending lists) is under the lock, the operations on the
+     * trees run outside of it, so the steady state workers create their children together.
+     * @param pop is the collection of the players (population).
+     * @param p1 is the player (individual) that we apply to him the operations.
+     * @param random is the random stream that we draw the arm and the operations from.
+     * @return a new player (individual) as a result of the chosen operations.
+     */
+    @Override
+    public Individual reproduce(Individual[] pop, Individual p1, SplittableRandom random) {
+        final int arm;
+        synchronized (this) {
+            if (pop != lastPopulation) {
+                rewardArms();
+                lastPopulation = pop;
+            }
+            arm = chooseArm(random);
+        }
+        if (arm == COPY)
+            return p1;
+        Individual child = p1;
+        if (arm != MUTATION)
+            child = child.crossover(select(pop, random), random);
+        if (arm != CROSSOVER)
+            child = child.mutate(random);
+
+        /* The tree limits rejected the operations, the child play like his parent and cost nothing */
+        if (child.isEvaluated())
+            return child;
+        /* An upper bound of the screen isn't a fitness, so we can't reward the child of such a parent */
+        final int parentFitness = p1.isFitnessExact() ? p1.getFitness() : -1;
+        synchronized (this) {
+            pendingChildren.add(child);
+            pendingArms.add(arm);
+            pendingParentFitness.add(parentFitness);
+        }
+        return child;
+    }
+
+
+    /**
+     * Select a random player from the good players and apply on him an operations, like
+     * {@link #reproduce(Individual[], Individual, SplittableRandom)}.
+     * @param pop is the collection of the players (population).
+     * @param random is the random stream that we draw the player, the arm and the operations from.
+     * @return a new player (individual) as a result of the chosen operations.
+     */
+    @Override
+    public Individual reproduce(Individual[] pop, SplittableRandom random) {
+        return reproduce(pop, select(pop, random), random);
+    }
+
+
+    /**
+     * Choose a random arm according to the current probabilities.
+     * @param random is the random stream that we draw the arm from.
+     * @return the chosen arm.
+     */
+    private int chooseArm(SplittableRandom random) {
+        double draw = random.nextDouble();
+        if (draw < armProb[CROSSOVER])
+            return CROSSOVER;
+        if (draw < armProb[CROSSOVER] + armProb[MUTATION])
+            return MUTATION;
+        if (draw < armProb[CROSSOVER] + armProb[MUTATION] + armProb[BOTH])
+            return BOTH;
+        return COPY;
+    }
+
+
+    /**
+     * Reward the arms of the pending children that are already evaluated, update the qualities
+     * and the probabilities of the arms. In the generations all of them are evaluated (the population
+     * sorted them), in the steady state the children that other workers still play stay pending for
+     * the next reward.
+     * The reward of a child is the improvement of his fitness over his parent fitness, and the
+     * reward of an arm in a generation is the average reward of his children (per evaluation).
+     * A child or a parent that has only an upper bound of the fitness (from the screen) isn't rewarded.
+     */
+    private void rewardArms() {
+        double[] rewardSum = new double[LEARNED_ARMS];
+        int[] count = new int[LEARNED_ARMS];
+        int kept = 0;
+        for (int i = 0; i < pendingChildren.size(); i++) {
+            Individual child = pendingChildren.get(i);
+            if (!child.isEvaluated()) {
+                pendingChildren.set(kept, child);
+                pendingArms.set(kept, pendingArms.get(i));
+                pendingParentFitness.set(kept, pendingParentFitness.get(i));
+                kept++;
+                continue;
+            }
+            if (!child.isFitnessExact() || pendingParentFitness.get(i) < 0)
+                continue;
+            int arm = pendingArms.get(i);
+            rewardSum[arm] += Math.max(0, pendingParentFitness.get(i) - child.getFitness());
+            count[arm]++;
+        }
+        pendingChildren.subList(kept, pendingChildren.size()).clear();
+        pendingArms.subList(kept, pendingArms.size()).clear();
+        pendingParentFitness.subList(kept, pendingParentFitness.size()).clear();
+
+        for (int arm = 0; arm < quality.length; arm++) {
+            if (count[arm] > 0)
+                quality[arm] = (1 - ADAPTATION_RATE) * quality[arm] + ADAPTATION_RATE * rewardSum[arm] / count[arm];
+        }
+        updateProbabilities();
+    }
+
+
+    /**
+     * Calculate the probabilities of the learned arms from their qualities (probability matching),
+     * they share the probability that left after the {@link #copyProb copy}, and every learned arm
+     * get at least {@link #MIN_PROB MIN_PROB} of this share.
+     */
+    private void updateProbabilities() {
+        double sum = 0;
+        for (double q : quality)
+            sum += q;
+        for (int arm = 0; arm < LEARNED_ARMS; arm++) {
+            double share = sum > 0 ? quality[arm] / sum : 1.0 / LEARNED_ARMS;
+            armProb[arm] = (1 - copyProb) * (MIN_PROB + (1 - LEARNED_ARMS * MIN_PROB) * share);
+        }
+        armProb[COPY] = copyProb;
+    }
+}
@@ -0,0 +1,166 @@
+package sudokuGame;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code BoardFeatureCache} is a cache of {@link BoardFeatures board features} that all the population share.
+ * All the players start from the same original sudoku and many of them place the same numbers in the first
+ * steps, so they reach the same board states again and again. Instead of scanning the board for every
+ * state, a player that reach a known state take the features from the cache.
+ *
+ * <p>The states are identified by a Zobrist hash: a random 64 bits number for every (cell, number) pair,
+ * and the hash of the board is the XOR of the numbers of his filled cells, so the player update the hash
+ * with one XOR when he place a number. A different board with the same hash is detected, and computed again.
+ *
+ * <p>The cache is safe to use from several threads, and it's bounded: when it's full we remove the oldest
+ * states first. The states of the first steps are the most common, so they come back quickly if removed.
+ * Boards of 64x64 and more are NOT cached.
+ * @see BoardFeatures
+ * @see BoardIndividual
+ */
+public class BoardFeatureCache {
+
+    /** The random numbers of the Zobrist hash for every board dimensions, (row * N + col) * (N + 1) + number */
+    private static final ConcurrentHashMap<Integer, long[]> ZOBRIST_KEYS = new ConcurrentHashMap<>();
+
+    /** The max amount of the states in the cache */
+    private final int capacity;
+
+    /** The features of the states by their hash */
+    private final ConcurrentHashMap<Long, BoardFeatures> entries = new ConcurrentHashMap<>();
+
+    /** The hashes in the order that they were added, we remove the oldest when the cache is full */
+    private final ConcurrentLinkedQueue<Long> order = new ConcurrentLinkedQueue<>();
+
+    /** The amount of the lookups that found the state */
+    private final LongAdder hits = new LongAdder();
+
+    /** The amount of the lookups that computed the state */
+    private final LongAdder misses = new LongAdder();
+
+
+    /**
+     * Initialize an empty cache.
+     * @param capacity is the max amount of the states in the cache.
+     * @throws RuntimeException if the capacity is less than 1.
+     */
+    public BoardFeatureCache(int capacity) {
+        if (capacity < 1)
+            throw new RuntimeException("The capacity of the feature cache must be at least 1");
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Get the random numbers of the Zobrist hash for boards with the gaven dimensions,
+     * they are generated from a fixed seed, so the hashes are the same in every run.
+     * @param dimensions is the board dimensions.
+     * @return random number for every (cell, number) pair.
+     */
+    private static long[] zobristKeys(int dimensions) {
+        return ZOBRIST_KEYS.computeIfAbsent(dimensions, n -> {
+            Random random = new Random(n);
+            long[] keys = new long[n * n * (n + 1)];
+            for (int i = 0; i < keys.length; i++)
+                keys[i] = random.nextLong();
+            return keys;
+        });
+    }
+
+
+    /**
+     * Compute the Zobrist hash of the whole board.
+     * @param board is the sudoku board.
+     * @return the hash of the board.
+     */
+    static long hashBoard(int[][] board) {
+        final int dimensions = board.length;
+        final long[] keys = zobristKeys(dimensions);
+        long hash = 0;
+        for (int i = 0; i < dimensions; i++)
+            for (int j = 0; j < dimensions; j++)
+                if (board[i][j] != 0)
+                    hash ^= keys[(i * dimensions + j) * (dimensions + 1) + board[i][j]];
+        return hash;
+    }
+
+
+    /**
+     * Get the change of the Zobrist hash when we place a number, XOR it with the hash of the board.
+     * @param dimensions is the board dimensions.
+     * @param row is the row of the cell.
+     * @param col is the column of the cell.
+     * @param num is the number that we placed.
+     * @return the value to XOR with the hash.
+     */
+    static long hashPlacement(int dimensions, int row, int col, int num) {
+        return zobristKeys(dimensions)[(row * dimensions + col) * (dimensions + 1) + num];
+    }
+
+
+    /**
+     * Get the features of the board state, from the cache if we have them, otherwise we compute them
+     * and add them to the cache.
+     * @param hash is the Zobrist hash of the board.
+     * @param board is the sudoku board.
+     * @return the features of the board, or null if the board is too big to cache.
+     */
+    BoardFeatures get(long hash, int[][] board) {
+        if (board.length >= Long.SIZE)
+            return null;
+        BoardFeatures features = entries.get(hash);
+        if (features != null && features.isFeaturesOf(board)) {
+            hits.increment();
+            return features;
+        }
+        misses.increment();
+        features = new BoardFeatures(board);
+        entries.put(hash, features);
+        order.add(hash);
+        while (entries.size() > capacity) {
+            Long oldest = order.poll();
+            if (oldest == null)
+                break;
+            entries.remove(oldest);
+        }
+        return features;
+    }
+
+
+    /**
+     * Get the amount of the lookups that found the state in the cache.
+     * @return the amount of the hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+
+    /**
+     * Get the amount of the lookups until now.
+     * @return the amount of the hits and the misses.
+     */
+    public long getLookups() {
+        return hits.sum() + misses.sum();
+    }
+
+
+    /**
+     * Get the percent of the lookups that found the state in the cache.
+     * @return the hit rate, 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long lookups = getLookups();
+        return lookups > 0 ? (double) getHits() / lookups : 0;
+    }
+
+
+    @Override
+    public String toString() {
+        return "Feature cache: " + entries.size() + " states, " + getLookups() + " lookups, hit rate "
+                + getHitRate();
+    }
+}
@@ -0,0 +1,147 @@
+package sudokuGame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code BoardFeatures} hold everything that the {@link Terminal terminals} and the options of the cells
+ * derive from one state of the sudoku board, so we compute them once for the state instead of once
+ * for every option and every terminal in the tree.
+ * The instance never change after it's built, so all the players (and all the threads) that reach
+ * the same state can share it, see {@link BoardFeatureCache}.
+ *
+ * <p>The features are computed with the same {@link Terminal} functions, so a terminal that read
+ * the feature return exactly the same value as the terminal that scan the board.
+ * The amount of the options in a cell ({@code numOfOptionsInCell}) is read from the gradeboard, it's cheap.
+ * @see BoardFeatureCache
+ * @see Terminal
+ */
+final class BoardFeatures {
+
+    /** The terminals that depend only on the number (key) */
+    private static final String[] KEY_FUNCTIONS = {
+            "numOfOptionsToAppearInBoard",
+            "countEmptyCellsInRowsContainsNum",
+            "countEmptyCellsInColsContainsNum",
+            "countEmptyCellsInSquareContainsNum",
+            "countEmptyCellsInRows_ThatNotContainsNum",
+            "countEmptyCellsInCols_ThatNotContainsNum",
+            "countEmptyCellsInSquare_ThatNotContainsNum"};
+
+    /** The board of the state, one value for every cell (row after row), we use it to detect hash collisions */
+    private final byte[] cells;
+
+    /** The length of the square side, sqrt(N) */
+    private final int squareLength;
+
+    /** The amount of the empty cells in every row */
+    private final int[] emptyInRow;
+
+    /** The amount of the empty cells in every column */
+    private final int[] emptyInCol;
+
+    /** The amount of the empty cells in every square, the squares are numbered row after row */
+    private final int[] emptyInSquare;
+
+    /** The values of the key terminals, for every function name an array indexed by the number (key) */
+    private final Map<String, int[]> keyFeatures = new HashMap<>();
+
+    /**
+     * The options of every cell (row after row), bit k is on if the number k can be inserted without conflict,
+     * 0 for the cells that are NOT empty.
+     */
+    private final long[] candidates;
+
+
+    /**
+     * Compute the features of the gaven board state.
+     * @param board is the sudoku board, NxN when N is smaller than 64.
+     */
+    BoardFeatures(int[][] board) {
+        final int dimensions = board.length;
+        squareLength = (int) Math.sqrt(dimensions);
+        cells = new byte[dimensions * dimensions];
+        candidates = new long[dimensions * dimensions];
+        emptyInRow = new int[dimensions];
+        emptyInCol = new int[dimensions];
+        emptyInSquare = new int[dimensions];
+
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = 0; j < dimensions; j++) {
+                cells[i * dimensions + j] = (byte) board[i][j];
+                if (board[i][j] != 0)
+                    continue;
+                emptyInRow[i]++;
+                emptyInCol[j]++;
+                emptyInSquare[(i / squareLength) * squareLength + j / squareLength]++;
+                long options = 0;
+                for (int k = 1; k <= dimensions; k++) {
+                    if (!(Terminal.existInRow(i, k, board) || Terminal.existInCol(j, k, board)
+                            || Terminal.existInSquare(i, j, k, board)))
+                        options |= 1L << k;
+                }
+                candidates[i * dimensions + j] = options;
+            }
+        }
+
+        for (String function : KEY_FUNCTIONS) {
+            Terminal terminal = new Terminal(function);
+            int[] values = new int[dimensions + 1];
+            for (int key = 1; key <= dimensions; key++)
+                values[key] = (int) terminal.run(0, 0, key, board, null);
+            keyFeatures.put(function, values);
+        }
+    }
+
+
+    /**
+     * Check if the features were computed for the gaven board, a different board with the same hash is a collision.
+     * @param board is the sudoku board.
+     * @return true if the board is exactly the board of the features.
+     */
+    boolean isFeaturesOf(int[][] board) {
+        final int dimensions = board.length;
+        if (cells.length != dimensions * dimensions)
+            return false;
+        for (int i = 0; i < dimensions; i++)
+            for (int j = 0; j < dimensions; j++)
+                if (cells[i * dimensions + j] != board[i][j])
+                    return false;
+        return true;
+    }
+
+
+    /**
+     * Check if the number can be inserted in the cell without conflict.
+     * @param row is the index of the row.
+     * @param col is the index of the column.
+     * @param num is the number.
+     * @return true if the cell is empty and the number doesn't exist in the row, the column or the square.
+     */
+    boolean isCandidate(int row, int col, int num) {
+        return (candidates[row * emptyInRow.length + col] & (1L << num)) != 0;
+    }
+
+
+    /**
+     * Get the value of a terminal in the state, if we hold it.
+     * @param function is the function name of the terminal.
+     * @param row is the index of the row.
+     * @param col is the index of the column.
+     * @param key is the number that we grade.
+     * @return the value of the terminal, or -1 if we don't hold it (the values are never negative).
+     */
+    int getFeature(String function, int row, int col, int key) {
+        switch (function) {
+            case "countEmptyCellInRow":
+                return emptyInRow[row];
+            case "countEmptyCellInCol":
+                return emptyInCol[col];
+            case "countEmptyCellInSquare":
+                return emptyInSquare[(row / squareLength) * squareLength + col / squareLength];
+            default:
+                int[] values = keyFeatures.get(function);
+                return values != null ? values[key] : -1;
+        }
+    }
+}
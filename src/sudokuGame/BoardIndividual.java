@@ -1,7 +1,14 @@
 package sudokuGame;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * {@code BoardIndividual} is representing the player that trying
@@ -31,7 +38,8 @@ public class BoardIndividual extends Individual {
     private final int[][] originalSudoku;
 
     /**
-     * 2D array that hold the sudoku board
+     * 2D array that hold the sudoku board while the player play,
+     * it's the board of the {@link #workspace workspace}, null when the player doesn't play.
      */
     private int[][] board;
 
@@ -40,39 +48,212 @@ public class BoardIndividual extends Individual {
      * the hash table holds as a keys the possible number that
      * can inserted without conflict ,and as a values grades
      * for the keys that represent how much good the key as a solution.
+     * It's the gradeboard of the {@link #workspace workspace}, null when the player doesn't play.
      */
     private Hashtable<Integer, Double>[][] gradeboard;
 
+    /**
+     * The workspace that the player borrowed from the current thread while he play,
+     * null when he doesn't play. The player keep only his tree and his fitness.
+     */
+    private EvaluationWorkspace workspace;
+
+    /**
+     * The numbers that the player placed since he started to play, every move is
+     * (row * N + col) * (N + 1) + number, so we can restore the state of a play that stopped
+     * in the middle (like in {@link FitnessScreening}). It's null when the player doesn't play.
+     */
+    private int[] moves;
+
+    /** The amount of the {@link #moves moves} */
+    private int moveCount;
+
+    /**
+     * A copy of the sudoku board at the end of the last {@link #finishPlay() finished play}, so we can show it
+     * without playing again. It's never changed after the play, so the copies of the player can share it.
+     * It's null if the player didn't finish a play (for example a player that has only an upper bound).
+     */
+    private int[][] finalBoard;
+
+    /**
+     * True if the next time that the player borrow a workspace we must restore his state,
+     * because he started a new play or finished his play.
+     */
+    private boolean resetOnAttach = true;
+
+    /**
+     * The max height of the tree that we allow after mutation or crossover,
+     * 0 mean no limit. It's copied to every clone of the prototype.
+     */
+    private int maxHeight;
+
+    /**
+     * The max amount of the nodes in the tree that we allow after mutation or crossover,
+     * 0 mean no limit. It's copied to every clone of the prototype.
+     */
+    private int maxSize;
+
+    /**
+     * The amount of the times that we try again a mutation or a crossover that exceed the tree limits,
+     * before we give up and return a copy of the current instance.
+     */
+    private static final int LIMIT_TRIES = 5;
+
+    /**
+     * The min board dimensions that we evaluate the gradeboard of one player in parallel,
+     * 0 mean never by the board dimensions. It's copied to every clone of the prototype.
+     */
+    private int parallelDimensions;
+
+    /**
+     * The min size of the {@link #getEvaluationSize() evaluated tree} that we evaluate the gradeboard
+     * of one player in parallel, 0 mean never by the tree size. It's copied to every clone of the prototype.
+     */
+    private int parallelTreeSize;
+
+    /** True if the current play evaluate the gradeboard in parallel, we decide it in {@link #startPlay()} */
+    private boolean parallelPlay;
+
+    /**
+     * True if the player place several numbers in every pass over the gradeboard, see
+     * {@link #setBatchPlacement(boolean, double) setBatchPlacement}, false if he place one number in every pass.
+     */
+    private boolean batchPlacement;
+
+    /** How far from the smallest grade a number can be to be placed in the same pass */
+    private double batchTolerance;
+
+    /**
+     * The max amount of the nodes (board states) that the bounded search visit after the greedy play,
+     * 0 mean only the greedy play. See {@link #setSearchBudget(int) setSearchBudget}.
+     */
+    private int searchBudget;
+
+    /** The cache of the board features that all the population share, null mean no cache */
+    private BoardFeatureCache featureCache;
+
+    /** The Zobrist hash of the board while the player play, we update it with every number that he place */
+    private long boardHash;
+
+    /** The features of the current board state from the {@link #featureCache cache}, null if we don't use a cache */
+    private BoardFeatures features;
+
+    /**
+     * The amount of the passes over the gradeboard (every pass grade all the options of the board) in the last play,
+     * a clone keep the value of his parent until he play, so it's an estimate of his play,
+     * see {@link EvaluationScheduler}.
+     */
+    private int playSteps;
+
 
     /**
      * First we check if the board's dimension is NxN when sqrt(N) is natural number,
      * and then we initialize the fields and build the instance of {@code BoardIndividual}.
      * @param height is the height of the tree that we want to hold.
      * @param board is reference of the sudoku that we want to solve.
+     * @param random is the random stream that we draw the tree from.
      */
-    @SuppressWarnings("unchecked")
-    public BoardIndividual(int height, int[][] board) {
-        super(height);
+    public BoardIndividual(int height, int[][] board, SplittableRandom random) {
+        super(height, random);
         /* We need to test board's dimensions*/
         this.testIfGoodDimensionBoard(board);
 
         this.originalSudoku = board;
-        this.board = new int[board.length][];
-        this.gradeboard = new Hashtable[board.length][];
+    }
 
-        for (int i = 0; i < board.length; i++) {
-            this.board[i] = new int[board[i].length];
-            this.gradeboard[i] = new Hashtable[board[i].length];
-        }
-        for (int i = 0; i < board.length; i++) {
-            for (int j = 0; j < board[i].length; j++) {
-                this.board[i][j] = board[i][j];
-                this.gradeboard[i][j] = new Hashtable<>();
-            }
-        }
+
+    /**
+     * Initialize the instance without a tree, for players that hold another genome
+     * (like {@link CartesianIndividual}).
+     * @param board is reference of the sudoku that we want to solve.
+     */
+    protected BoardIndividual(int[][] board) {
+        super();
+        this.testIfGoodDimensionBoard(board);
+        this.originalSudoku = board;
+    }
+
+
+    /**
+     * Set the limits of the tree (bloat control), if a mutation or a crossover create a tree
+     * that exceed these limits, we keep the parent instead of the new individual.
+     * Set it on the prototype, and all the population will have the same limits.
+     * @param maxHeight is the max height of the tree, 0 mean no limit.
+     * @param maxSize is the max amount of the nodes in the tree, 0 mean no limit.
+     */
+    public void setTreeLimits(int maxHeight, int maxSize) {
+        this.maxHeight = maxHeight;
+        this.maxSize = maxSize;
     }
 
 
+    /**
+     * Set when to evaluate the gradeboard of one player in parallel, the rows of the board are split
+     * between the threads of the common {@link ForkJoinPool}, it's worth only when one play is expensive:
+     * big boards (25x25 and more) or big trees.
+     * Set it on the prototype, and all the population will have the same thresholds.
+     * @param minDimensions is the min board dimensions for parallel evaluation, 0 mean never by the dimensions.
+     * @param minTreeSize is the min size of the evaluated tree for parallel evaluation, 0 mean never by the size.
+     */
+    public void setParallelThresholds(int minDimensions, int minTreeSize) {
+        this.parallelDimensions = minDimensions;
+        this.parallelTreeSize = minTreeSize;
+    }
+
+
+    /**
+     * Set the play mode. In the original play the player evaluate the whole gradeboard and place only the number
+     * with the smallest grade, so a board with 55 empty cells need about 55 passes. In the batch play he place in
+     * every pass the number with the smallest grade, all the cells that have only one option (forced singles),
+     * and all the numbers with a grade up to the smallest grade + tolerance, as long as they don't conflict: the same
+     * number is NOT placed twice in a row, a column or a square, and a cell get only one number.
+     * Set it on the prototype, and all the population will play in the same mode.
+     * @param batchPlacement is true for the batch play, false for the original play (one number in every pass).
+     * @param tolerance is how far from the smallest grade a number can be to be placed in the same pass.
+     */
+    public void setBatchPlacement(boolean batchPlacement, double tolerance) {
+        this.batchPlacement = batchPlacement;
+        this.batchTolerance = tolerance;
+    }
+
+
+    /**
+     * Set the budget of the bounded search. When the greedy play ends with empty cells, the player play again
+     * from the beginning as a depth-first search: in every state he take the cell that the greedy play choose,
+     * try its options from the smallest grade, and go back when a cell is left without options.
+     * The first path of the search is the greedy play, and the fitness is the best state that the search
+     * reached, so it's never worse than the greedy play.
+     * Set it on the prototype, and all the population will have the same budget.
+     * @param searchBudget is the max amount of the states that the search visit, 0 mean only the greedy play.
+     */
+    public void setSearchBudget(int searchBudget) {
+        this.searchBudget = searchBudget;
+    }
+
+
+    /**
+     * Set the cache of the board features, the players that reach a board state that another player
+     * already reached take the features of the state (the values of the terminals and the options of the cells)
+     * from the cache instead of scanning the board. The play is exactly the same.
+     * Set it on the prototype, and all the population will share the same cache.
+     * @param featureCache is the cache, null mean no cache.
+     */
+    public void setFeatureCache(BoardFeatureCache featureCache) {
+        this.featureCache = featureCache;
+    }
+
+
+    /**
+     * Check if the tree of the gaven individual exceed the {@link #maxHeight height}
+     * or the {@link #maxSize size} limits.
+     * @param individual is the individual that we want to check.
+     * @return true if the tree is too big, false otherwise.
+     */
+    private boolean exceedTreeLimits(Individual individual) {
+        return (maxHeight > 0 && individual.findHeight() > maxHeight)
+                || (maxSize > 0 && individual.getSize() > maxSize);
+    }
+
 
     /**
      * Check if we still can solve more cells without conflict,
@@ -81,13 +262,19 @@ public class BoardIndividual extends Individual {
      * false otherwise.
      */
     boolean isForward() {
-        for (int i = 0; i < gradeboard.length; i++) {
-            for (int j = 0; j < gradeboard[i].length; j++) {
-                if (!gradeboard[i][j].isEmpty())
-                    return true;
+        final boolean attached = attach();
+        try {
+            for (int i = 0; i < gradeboard.length; i++) {
+                for (int j = 0; j < gradeboard[i].length; j++) {
+                    if (!gradeboard[i][j].isEmpty())
+                        return true;
+                }
             }
+            return false;
+        }
+        finally {
+            detach(attached);
         }
-        return false;
     }
 
 
@@ -99,39 +286,596 @@ public class BoardIndividual extends Individual {
      * in other words it's the fitness of the individual.
      */
     int play() {
+        startPlay();
+        final boolean attached = attach();
+        try {
+            finishPlay();
+            return countEmptyCellInSudoku();
+        }
+        finally {
+            detach(attached);
+            endPlay();
+        }
+    }
+
+
+    /**
+     * Start to play from the beginning with {@link #playPlacements(int) playPlacements}, the solving board
+     * is reset to the {@link #originalSudoku original sudoku} (and the options of every empty cell are found)
+     * when the player borrow a workspace.
+     * We also prepare the simplified tree that we run while playing.
+     */
+    void startPlay() {
+        final int dimensions = originalSudoku.length;
+        prepareEvaluationTree(dimensions);
+        /* When the grade doesn't depend on the cell the tree run only once for every key, it's cheap */
+        parallelPlay = gradeDependsOnCell() &&
+                ((parallelDimensions > 0 && dimensions >= parallelDimensions)
+                        || (parallelTreeSize > 0 && getEvaluationSize() >= parallelTreeSize));
+        moveCount = 0;
+        playSteps = 0;
+        finalBoard = null;
+        resetOnAttach = true;
+    }
+
+
+    /**
+     * Continue to play until the end: the greedy play, and then the bounded search if we use it
+     * (see {@link #setSearchBudget(int) setSearchBudget}).
+     */
+    void finishPlay() {
+        final boolean attached = attach();
+        try {
+            playPlacements(Integer.MAX_VALUE);
+            if (searchBudget > 0 && Terminal.countEmptyCellInSudoku(board) > 0)
+                searchFromStart();
+            finalBoard = copyBoard(board);
+        }
+        finally {
+            detach(attached);
+        }
+    }
+
+
+    /**
+     * Finish the play and forget the moves, after that the player hold only his tree and his fitness.
+     * We call it when we know the fitness of the player.
+     */
+    void endPlay() {
+        moves = null;
+        moveCount = 0;
+        features = null;
+        resetOnAttach = true;
+    }
+
+
+    /**
+     * Borrow a {@link EvaluationWorkspace workspace} from the current thread, if we don't have one yet,
+     * and restore the state of the play in it if it doesn't hold it already.
+     * @return true if we borrowed the workspace now (so we should {@link #detach(boolean) detach} it),
+     * false if we already had it.
+     */
+    private boolean attach() {
+        if (workspace != null)
+            return false;
+        workspace = EvaluationWorkspace.acquire(this, originalSudoku.length);
+        board = workspace.board;
+        gradeboard = workspace.gradeboard;
+        if (resetOnAttach || !workspace.holds(this, moveCount))
+            restoreState();
+        resetOnAttach = false;
+        return true;
+    }
+
+
+    /**
+     * Return the workspace to the current thread, if we borrowed it in the matching {@link #attach() attach}.
+     * @param attached is the result of the matching attach.
+     */
+    private void detach(boolean attached) {
+        if (!attached)
+            return;
+        workspace.release(this, moveCount);
+        workspace = null;
+        board = null;
+        gradeboard = null;
+    }
+
+
+    /**
+     * Restore the state of the play in the workspace: reset the solving board to the
+     * {@link #originalSudoku original sudoku}, place the {@link #moves moves} again and find the options
+     * of every empty cell. The options depend only on the board, so the state is exactly like before.
+     */
+    private void restoreState() {
+        final int dimensions = originalSudoku.length;
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = 0; j < dimensions; j++) {
+                this.board[i][j] = originalSudoku[i][j];
+                this.gradeboard[i][j].clear();
+            }
+        }
+        for (int m = 0; m < moveCount; m++) {
+            final int cell = moves[m] / (dimensions + 1);
+            board[cell / dimensions][cell % dimensions] = moves[m] % (dimensions + 1);
+        }
+        if (featureCache != null)
+            boardHash = BoardFeatureCache.hashBoard(board);
         initializeGradeboard();
-        int fitness = countEmptyCellInSudoku();
-        while (isForward()) {
-            evaluateGradeboard();
-
-            double min = Double.MAX_VALUE;
-            int x = -1, y = -1, minKey = 0;
-
-            for (int i = 0; i < board.length; i++) {
-                for (int j = 0; j < board[i].length; j++) {
-                    if (!gradeboard[i][j].isEmpty() && board[i][j] == 0) {
-                        Enumeration<Integer> keys = this.gradeboard[i][j].keys();
-                        while (keys.hasMoreElements()) {
-                            int key = keys.nextElement();
-                            double tmpMin = this.gradeboard[i][j].get(key);
-                            if (tmpMin < min) {
-                                minKey = key;
-                                x = i;
-                                y = j;
-                                min = tmpMin;
-                            }
-                        }
+    }
+
+
+    /**
+     * Remember a move of the player, so we can {@link #restoreState() restore} his state.
+     * @param row is the row of the cell.
+     * @param col is the column of the cell.
+     * @param key is the number that the player placed.
+     */
+    private void recordMove(int row, int col, int key) {
+        if (moves == null)
+            moves = new int[16];
+        else if (moveCount == moves.length)
+            moves = Arrays.copyOf(moves, moveCount * 2);
+        final int dimensions = originalSudoku.length;
+        moves[moveCount++] = (row * dimensions + col) * (dimensions + 1) + key;
+    }
+
+
+    /**
+     * Continue to solve the sudoku board from the current state of the board,
+     * until you can't forward without conflict or until you placed maxPlacements numbers.
+     * Since the play is continued from where it stopped, calling this method with small
+     * maxPlacements and then calling it again is exactly the same as calling it once
+     * with the sum of them, we use it to screen the players with a truncated play.
+     * In the {@link #setBatchPlacement(boolean, double) batch play} we stop only after a whole pass,
+     * so the last pass can place more than maxPlacements numbers.
+     * @param maxPlacements is the max amount of numbers that we allow the player to place.
+     * @return the amount of the numbers that the player placed in this call.
+     */
+    int playPlacements(int maxPlacements) {
+        final boolean attached = attach();
+        try {
+            return placeNumbers(maxPlacements);
+        }
+        finally {
+            detach(attached);
+        }
+    }
+
+
+    /**
+     * Run an action on the current state of the play, with the workspace borrowed, so the action can call
+     * the steps of the play ({@link #initializeGradeboard()}, {@link #evaluateGradeboard()}) directly.
+     * The benchmarks use it to measure one step without the rest of the play.
+     * @param action is the action, it shouldn't place numbers.
+     */
+    void inWorkspace(Runnable action) {
+        final boolean attached = attach();
+        try {
+            action.run();
+        }
+        finally {
+            detach(attached);
+        }
+    }
+
+
+    /**
+     * The loop of {@link #playPlacements(int) playPlacements}, the workspace is already borrowed.
+     * @param maxPlacements is the max amount of numbers that we allow the player to place.
+     * @return the amount of the numbers that the player placed.
+     */
+    private int placeNumbers(int maxPlacements) {
+        int placements = 0;
+        while (placements < maxPlacements && isForward()) {
+            Choice choice = evaluateAndChoose();
+            if (batchPlacement) {
+                int placed = placeBatch(choice);
+                if (placed == 0)
+                    break;
+                placements += placed;
+            }
+            else {
+                /* No option got a grade smaller than Double.MAX_VALUE (all of them are infinity or NaN),
+                the player can't choose anything and nothing will change, so he stop here */
+                if (choice.row == -1 || choice.col == -1 || choice.key == 0)
+                    break;
+                place(choice.row, choice.col, choice.key);
+                placements++;
+            }
+            initializeGradeboard();
+        }
+        return placements;
+    }
+
+
+    /**
+     * Evaluate the gradeboard and find the option with the smallest grade, in parallel if the play is parallel.
+     * @return the option with the smallest grade, without a cell if all the grades are infinity or NaN.
+     */
+    private Choice evaluateAndChoose() {
+        playSteps++;
+        if (parallelPlay)
+            return ForkJoinPool.commonPool().invoke(new RowsTask(0, board.length));
+        evaluateGradeboard();
+        Choice choice = new Choice();
+        for (int i = 0; i < board.length; i++)
+            chooseInRow(i, choice);
+        return choice;
+    }
+
+
+    /**
+     * Place the number in the cell, and remember the move.
+     * The options of the other cells are updated later, in {@link #initializeGradeboard() initializeGradeboard}.
+     * @param row is the row of the cell.
+     * @param col is the column of the cell.
+     * @param key is the number that we place.
+     */
+    private void place(int row, int col, int key) {
+        this.board[row][col] = key;
+        if (featureCache != null)
+            boardHash ^= BoardFeatureCache.hashPlacement(board.length, row, col, key);
+        gradeboard[row][col].clear();
+        recordMove(row, col, key);
+    }
+
+
+    /**
+     * Remove the last number that we placed, the options of the cells are updated later,
+     * in {@link #initializeGradeboard() initializeGradeboard}.
+     * @param row is the row of the cell.
+     * @param col is the column of the cell.
+     * @param key is the number that we remove.
+     */
+    private void unplace(int row, int col, int key) {
+        this.board[row][col] = 0;
+        if (featureCache != null)
+            boardHash ^= BoardFeatureCache.hashPlacement(board.length, row, col, key);
+        moveCount--;
+    }
+
+
+    /**
+     * The state of the bounded search.
+     */
+    private static class Search {
+        /** The amount of the states that we still can visit */
+        int nodesLeft;
+        /** The smallest amount of the empty cells that we reached */
+        int bestEmpty;
+        /** The moves of the best state */
+        int[] bestMoves;
+    }
+
+
+    /**
+     * Play again from the beginning as a bounded depth-first search, and finish in the best state that we reached,
+     * or in the state of the greedy play if the search didn't find a better one.
+     */
+    private void searchFromStart() {
+        Search search = new Search();
+        search.nodesLeft = searchBudget;
+        search.bestEmpty = Terminal.countEmptyCellInSudoku(board);
+        search.bestMoves = currentMoves();
+
+        moveCount = 0;
+        restoreState();
+        search(search);
+
+        moves = Arrays.copyOf(search.bestMoves, Math.max(16, search.bestMoves.length));
+        moveCount = search.bestMoves.length;
+        restoreState();
+    }
+
+
+    /**
+     * Copy the moves of the current state.
+     * @return the moves since the beginning of the play.
+     */
+    private int[] currentMoves() {
+        return (moveCount == 0) ? new int[0] : Arrays.copyOf(moves, moveCount);
+    }
+
+
+    /**
+     * Visit the current state in the depth-first search, in recursive way. If there is a cell without options
+     * the state can't be solved so we go back, otherwise we take the cell of the option with the smallest grade
+     * (like the greedy play), and try every option of the cell from the smallest grade,
+     * the undo is removing the number and updating the options again.
+     * @param search is the state of the search, we update it.
+     */
+    private void search(Search search) {
+        if (search.nodesLeft-- <= 0)
+            return;
+        int empty = Terminal.countEmptyCellInSudoku(board);
+        if (empty < search.bestEmpty) {
+            search.bestEmpty = empty;
+            search.bestMoves = currentMoves();
+        }
+        if (empty == 0 || hasDeadCell())
+            return;
+
+        Choice choice = evaluateAndChoose();
+        if (choice.row == -1 || choice.col == -1 || choice.key == 0)
+            return;
+        final int row = choice.row, col = choice.col;
+        final Hashtable<Integer, Double> grades = gradeboard[row][col];
+        /* The sort is stable, so equal grades keep the order of the hash table, like in the greedy choice */
+        List<Integer> keys = new ArrayList<>(grades.keySet().size());
+        Enumeration<Integer> enumeration = grades.keys();
+        while (enumeration.hasMoreElements())
+            keys.add(enumeration.nextElement());
+        keys.sort(Comparator.comparingDouble(grades::get));
+
+        for (int key : keys) {
+            place(row, col, key);
+            initializeGradeboard();
+            search(search);
+            if (search.bestEmpty == 0 || search.nodesLeft <= 0)
+                return;
+            unplace(row, col, key);
+            initializeGradeboard();
+        }
+    }
+
+
+    /**
+     * Check if there is an empty cell that no number can be inserted in it without conflict.
+     * @return true if there is a dead cell.
+     */
+    private boolean hasDeadCell() {
+        for (int i = 0; i < board.length; i++)
+            for (int j = 0; j < board[i].length; j++)
+                if (board[i][j] == 0 && gradeboard[i][j].isEmpty())
+                    return true;
+        return false;
+    }
+
+
+    /**
+     * Place several numbers after one pass over the gradeboard (the batch play): first the number with the smallest
+     * grade (like in the original play), then the numbers of the cells that have only one option, and then the
+     * numbers with a grade up to the smallest grade + {@link #batchTolerance tolerance}, from the smallest grade.
+     * We check every number against the board with the numbers that we already placed in this pass,
+     * so a number that conflict with them is skipped.
+     * @param choice is the option with the smallest grade in the gradeboard.
+     * @return the amount of the numbers that we placed.
+     */
+    private int placeBatch(Choice choice) {
+        final boolean chosen = choice.row != -1 && choice.col != -1 && choice.key != 0;
+        final double limit = choice.min + batchTolerance;
+        List<int[]> singles = new ArrayList<>();
+        List<int[]> near = new ArrayList<>();
+        List<Double> nearGrades = new ArrayList<>();
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
+                if (board[i][j] != 0 || gradeboard[i][j].isEmpty())
+                    continue;
+                if (gradeboard[i][j].size() == 1)
+                    singles.add(new int[]{i, j, gradeboard[i][j].keys().nextElement()});
+                if (!chosen)
+                    continue;
+                Enumeration<Integer> keys = this.gradeboard[i][j].keys();
+                while (keys.hasMoreElements()) {
+                    int key = keys.nextElement();
+                    double grade = this.gradeboard[i][j].get(key);
+                    if (grade <= limit) {
+                        near.add(new int[]{i, j, key});
+                        nearGrades.add(grade);
                     }
                 }
             }
-            if (x != -1 && y != -1 && minKey != 0) {
-                this.board[x][y] = minKey;
-                gradeboard[x][y].clear();
-                fitness--;
+        }
+        /* From the smallest grade, the sort is stable so equal grades keep the scan order */
+        Integer[] order = new Integer[near.size()];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(nearGrades::get));
+
+        List<int[]> batch = new ArrayList<>(1 + singles.size() + order.length);
+        if (chosen)
+            batch.add(new int[]{choice.row, choice.col, choice.key});
+        batch.addAll(singles);
+        for (int index : order)
+            batch.add(near.get(index));
+
+        int placed = 0;
+        for (int[] move : batch) {
+            int row = move[0], col = move[1], key = move[2];
+            if (board[row][col] == 0 && !existInRowColSquare(row, col, key)) {
+                place(row, col, key);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+
+    /**
+     * The option with the smallest grade that we found until now, we choose it to insert in the board.
+     */
+    private static class Choice {
+        /** The smallest grade */
+        double min = Double.MAX_VALUE;
+        /** The row of the cell of the smallest grade, -1 if we didn't find yet */
+        int row = -1;
+        /** The column of the cell of the smallest grade, -1 if we didn't find yet */
+        int col = -1;
+        /** The number (key) with the smallest grade, 0 if we didn't find yet */
+        int key = 0;
+    }
+
+
+    /**
+     * Look for an option with smaller grade than the choice in the gaven row, and update the choice.
+     * We scan the cells in order and replace the choice only with a strictly smaller grade, so between
+     * equal grades the first option (in the rows order and the hash table order) is chosen.
+     * @param i is the index of the row.
+     * @param choice is the best option that we found until now, we update it.
+     */
+    private void chooseInRow(int i, Choice choice) {
+        for (int j = 0; j < board[i].length; j++) {
+            if (!gradeboard[i][j].isEmpty() && board[i][j] == 0) {
+                Enumeration<Integer> keys = this.gradeboard[i][j].keys();
+                while (keys.hasMoreElements()) {
+                    int key = keys.nextElement();
+                    double tmpMin = this.gradeboard[i][j].get(key);
+                    if (tmpMin < choice.min) {
+                        choice.key = key;
+                        choice.row = i;
+                        choice.col = j;
+                        choice.min = tmpMin;
+                    }
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Task that evaluate the gradeboard in a range of rows and choose the option with the smallest grade there,
+     * the range is split in half until one row, and the choices of the halves are combined in the rows order,
+     * so the chosen option is exactly the same as in the sequential scan.
+     * Every task write only the hash tables of his rows, and the tree only read the board and the amount
+     * of the options in the cells, so the rows can be evaluated together.
+     */
+    private class RowsTask extends RecursiveTask<Choice> {
+        /** The version of the class for the serialization, a task is never serialized */
+        private static final long serialVersionUID = 1L;
+
+        /** The first row of the range */
+        private final int from;
+        /** The row after the last row of the range */
+        private final int to;
+
+        RowsTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Choice compute() {
+            if (to - from == 1) {
+                evaluateRow(from);
+                Choice choice = new Choice();
+                chooseInRow(from, choice);
+                return choice;
+            }
+            int middle = (from + to) / 2;
+            RowsTask upper = new RowsTask(from, middle);
+            upper.fork();
+            Choice lower = new RowsTask(middle, to).compute();
+            Choice first = upper.join();
+            return (lower.min < first.min) ? lower : first;
+        }
+    }
+
+
+    /**
+     * Find a lower bound of the fitness from the current state of the board.
+     * The options of a cell can only decrease while we play, so:
+     * a dead cell (an empty cell that no number can be inserted in it without conflict)
+     * will stay empty until the end of the play, and a number that missing in a row, column or square
+     * but has no empty cell there that can hold it, will leave one of the cells of this row,
+     * column or square empty until the end of the play.
+     * So the fitness of the player can NOT be less than the dead cells, and can NOT be less
+     * than the amount of the missing numbers without place in any row, column or square.
+     * The {@link #setSearchBudget(int) bounded search} play again from the beginning, so with the search
+     * there is no bound and we return 0.
+     * @return a lower bound of the fitness of the player, if he continue to play from the current state.
+     */
+    int findFitnessLowerBound() {
+        final boolean attached = attach();
+        try {
+            return (searchBudget > 0) ? 0 : findLowerBound();
+        }
+        finally {
+            detach(attached);
+        }
+    }
+
+
+    /**
+     * The calculation of {@link #findFitnessLowerBound() findFitnessLowerBound}, the workspace is already borrowed.
+     * @return a lower bound of the fitness of the player.
+     */
+    private int findLowerBound() {
+        final int squareLength = (int) Math.sqrt(board.length);
+        int deadCells = 0;
+        int maxUnplaceable = 0;
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
+                if (board[i][j] == 0 && gradeboard[i][j].isEmpty())
+                    deadCells++;
+            }
+        }
+        for (int unit = 0; unit < board.length; unit++) {
+            int rowUnplaceable = 0, colUnplaceable = 0, squareUnplaceable = 0;
+            final int rowStart = (unit / squareLength) * squareLength;
+            final int colStart = (unit % squareLength) * squareLength;
+            for (int num = 1; num <= board.length; num++) {
+                if (!Terminal.existInRow(unit, num, board) && !hasPlaceInRow(unit, num))
+                    rowUnplaceable++;
+                if (!Terminal.existInCol(unit, num, board) && !hasPlaceInCol(unit, num))
+                    colUnplaceable++;
+                if (!Terminal.existInSquare(rowStart, colStart, num, board)
+                        && !hasPlaceInSquare(rowStart, colStart, num))
+                    squareUnplaceable++;
+            }
+            maxUnplaceable = Math.max(maxUnplaceable,
+                    Math.max(rowUnplaceable, Math.max(colUnplaceable, squareUnplaceable)));
+        }
+        return Math.max(deadCells, maxUnplaceable);
+    }
+
+
+    /**
+     * Check if the gaven number is an option of at least one empty cell in the gaven row.
+     * @param row is the index of the row.
+     * @param num is the number that we look a place for him.
+     * @return true if at least one cell in the row can hold num without conflict, false otherwise.
+     */
+    private boolean hasPlaceInRow(int row, int num) {
+        for (int j = 0; j < board[row].length; j++) {
+            if (gradeboard[row][j].containsKey(num))
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Check if the gaven number is an option of at least one empty cell in the gaven column.
+     * @param col is the index of the column.
+     * @param num is the number that we look a place for him.
+     * @return true if at least one cell in the column can hold num without conflict, false otherwise.
+     */
+    private boolean hasPlaceInCol(int col, int num) {
+        for (int i = 0; i < board.length; i++) {
+            if (gradeboard[i][col].containsKey(num))
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Check if the gaven number is an option of at least one empty cell in the gaven square.
+     * @param rowStart is the index of the first row of the square.
+     * @param colStart is the index of the first column of the square.
+     * @param num is the number that we look a place for him.
+     * @return true if at least one cell in the square can hold num without conflict, false otherwise.
+     */
+    private boolean hasPlaceInSquare(int rowStart, int colStart, int num) {
+        final int squareLength = (int) Math.sqrt(board.length);
+        for (int i = rowStart; i < rowStart + squareLength; i++) {
+            for (int j = colStart; j < colStart + squareLength; j++) {
+                if (gradeboard[i][j].containsKey(num))
+                    return true;
             }
-            initializeGradeboard();
         }
-        return fitness;
+        return false;
     }
 
 
@@ -143,15 +887,76 @@ public class BoardIndividual extends Individual {
      * and as a values grades for the keys that represent how much good
      * is the key as a solution. Smaller is better.
      * So this method is evaluate and build this gradeboard.
+     * If the grade of the tree doesn't depend on the key we run the tree once for every cell,
+     * and if it doesn't depend on the cell we run the tree once for every key
+     * (see {@link TreeAnalyzer}), the gradeboard is exactly the same.
      */
     void evaluateGradeboard() {
+        if (!gradeDependsOnCell() && gradeDependsOnKey()) {
+            evaluateGradeboardByKey();
+            return;
+        }
+        for (int i = 0; i < gradeboard.length; i++)
+            evaluateRow(i);
+    }
+
+
+    /**
+     * Evaluate the grades of the options of all the cells in the gaven row,
+     * when the grade of the tree doesn't depend on the key we run the tree once for every cell.
+     * @param i is the index of the row.
+     */
+    private void evaluateRow(int i) {
+        if (!gradeDependsOnKey()) {
+            evaluateRowByCell(i);
+            return;
+        }
+        for (int j = 0; j < gradeboard[i].length; j++) {
+            Enumeration<Integer> keys = this.gradeboard[i][j].keys();
+            while (keys.hasMoreElements()) {
+                int key = keys.nextElement();
+                double value = run(i, j, key, board, gradeboard, features);
+                this.gradeboard[i][j].put(key, value);
+            }
+        }
+    }
+
+
+    /**
+     * Evaluate the grades of the gaven row when the grade of the tree doesn't depend on the key,
+     * we run the tree once for every cell (with his first option), and give this grade to all the options of the cell.
+     * @param i is the index of the row.
+     */
+    private void evaluateRowByCell(int i) {
+        for (int j = 0; j < gradeboard[i].length; j++) {
+            if (gradeboard[i][j].isEmpty())
+                continue;
+            Enumeration<Integer> keys = this.gradeboard[i][j].keys();
+            double value = run(i, j, keys.nextElement(), board, gradeboard, features);
+            for (Integer key : this.gradeboard[i][j].keySet())
+                this.gradeboard[i][j].put(key, value);
+        }
+    }
+
+
+    /**
+     * Evaluate the gradeboard when the grade of the tree doesn't depend on the cell,
+     * we run the tree once for every key (in the first cell that has this option),
+     * and give this grade to the key in all the cells.
+     */
+    private void evaluateGradeboardByKey() {
+        final double[] keyGrades = new double[board.length + 1];
+        final boolean[] evaluated = new boolean[board.length + 1];
         for (int i = 0; i < gradeboard.length; i++) {
             for (int j = 0; j < gradeboard[i].length; j++) {
                 Enumeration<Integer> keys = this.gradeboard[i][j].keys();
                 while (keys.hasMoreElements()) {
                     int key = keys.nextElement();
-                    double value = run(i, j, key, board, gradeboard);
-                    this.gradeboard[i][j].put(key, value);
+                    if (!evaluated[key]) {
+                        keyGrades[key] = run(i, j, key, board, gradeboard, features);
+                        evaluated[key] = true;
+                    }
+                    this.gradeboard[i][j].put(key, keyGrades[key]);
                 }
             }
         }
@@ -162,8 +967,11 @@ public class BoardIndividual extends Individual {
      * Find which numbers can inserted in every cell without conflict,
      * with the solved cells, and saves these number in {@link #gradeboard gradeboard}.
      * The implementation is NOT efficient, we can optimize these code.
+     * If we use a {@link #featureCache feature cache} we take the features of the new board state,
+     * and the options of the cells are read from them instead of scanning the board.
      */
     void initializeGradeboard() {
+        features = (featureCache != null) ? featureCache.get(boardHash, board) : null;
         for (int i = 0; i < board.length; i++) {
             for (int j = 0; j < board[i].length; j++) {
                 if (this.board[i][j] == 0) {
@@ -177,7 +985,7 @@ public class BoardIndividual extends Individual {
             for (int j = 0; j < gradeboard[i].length; j++) {
                 if (!(gradeboard[i][j].isEmpty())) {
                     for (int k = 1; k <= board.length; k++) {
-                        if (existInRowColSquare(i, j, k))
+                        if (features != null ? !features.isCandidate(i, j, k) : existInRowColSquare(i, j, k))
                             this.gradeboard[i][j].remove(k);
                     }
                 }
@@ -209,7 +1017,22 @@ public class BoardIndividual extends Individual {
      * @return the amount of the empty cells in the sudoku board.
      */
     int countEmptyCellInSudoku() {
-        return Terminal.countEmptyCellInSudoku(this.board);
+        final boolean attached = attach();
+        try {
+            return Terminal.countEmptyCellInSudoku(this.board);
+        }
+        finally {
+            detach(attached);
+        }
+    }
+
+
+    /**
+     * Returns the reference to the original sudoku board, it's important NOT to change it.
+     * @return the original sudoku board that the individual trying to solve.
+     */
+    int[][] getOriginalSudoku() {
+        return originalSudoku;
     }
 
 
@@ -222,6 +1045,38 @@ public class BoardIndividual extends Individual {
     }
 
 
+    /**
+     * Get the amount of the passes over the gradeboard in the last play, for a clone that didn't play yet
+     * it's the amount of his parent (or 0 if the parent didn't play), we use it to estimate the cost of the play.
+     * @return the amount of the passes over the gradeboard.
+     */
+    int getPlaySteps() {
+        return playSteps;
+    }
+
+
+    /**
+     * Estimate the work of one pass over the gradeboard: the size of the simplified tree times the amount of
+     * the times that we run it in a pass (once for every option, or once for every cell or for every key if the
+     * grade doesn't depend on the other, see {@link #evaluateGradeboard() evaluateGradeboard}),
+     * counted on the original sudoku. We prepare the simplified tree here if it isn't ready yet.
+     * @return the amount of the nodes that we run in one pass.
+     */
+    long estimatePassWork() {
+        final int dimensions = originalSudoku.length;
+        prepareEvaluationTree(dimensions);
+        final long cells = countEmptyCellInOriginalSudoku();
+        final long runs;
+        if (!gradeDependsOnCell() && gradeDependsOnKey())
+            runs = dimensions;
+        else if (!gradeDependsOnKey())
+            runs = cells;
+        else
+            runs = cells * dimensions;
+        return runs * getEvaluationSize();
+    }
+
+
     /**
      * Evaluate the fitness of the current individual by letting him try
      * to play and solve the sudoku board. the fitness is the remaining empty cells.
@@ -235,26 +1090,34 @@ public class BoardIndividual extends Individual {
 
     /**
      * Clone the current instance (deep copy),
-     * and then reset the solving board copying the original board.
+     * the copy didn't play yet (he doesn't hold any state of a play).
      * @return new instance (deep copy) that equal to the current instance.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public BoardIndividual clone() {
         BoardIndividual copy = (BoardIndividual) super.clone();
-        copy.board = new int[board.length][];
-        copy.gradeboard = new Hashtable[gradeboard.length][];
+        /* The copy didn't play yet, he borrow a workspace when he play */
+        copy.workspace = null;
+        copy.board = null;
+        copy.gradeboard = null;
+        copy.moves = null;
+        copy.moveCount = 0;
+        copy.resetOnAttach = true;
+        copy.features = null;
+        copy.finalBoard = null;
+        return copy;
+    }
 
-        for (int i = 0; i < copy.board.length; i++) {
-            copy.board[i] = new int[board[i].length];
-            copy.gradeboard[i] = new Hashtable[gradeboard[i].length];
-        }
-        for (int i = 0; i < copy.board.length; i++) {
-            for (int j = 0; j < copy.board[i].length; j++) {
-                copy.board[i][j] = copy.originalSudoku[i][j];
-                copy.gradeboard[i][j] = new Hashtable<>();
-            }
-        }
+
+    /**
+     * Clone the current instance with his fitness, and share with the copy the
+     * {@link #finalBoard board after the play}, they have the same tree so they play exactly the same.
+     * @return a new instance (deep copy) that equal to the current instance, with the same fitness.
+     */
+    @Override
+    BoardIndividual copyWithFitness() {
+        BoardIndividual copy = (BoardIndividual) super.copyWithFitness();
+        copy.finalBoard = finalBoard;
         return copy;
     }
 
@@ -263,26 +1126,44 @@ public class BoardIndividual extends Individual {
      * Very important NOT to change this method unless you know exactly what you do.
      * Mutate the tree-based GP by changing randomly a part of the tree.
      * The Mutation is NOT less important than the crossover method.
+     * If the new tree exceed the tree limits we try again, at most {@link #LIMIT_TRIES LIMIT_TRIES} times.
+     * @param random is the random stream that we draw the change from.
      * @return a new clone of the current instance with some mutation,
-     * (random change in the tree-based GP).
+     * (random change in the tree-based GP), or a {@link #copyWithFitness() copy} of the current instance
+     * if all the new trees exceed the tree limits.
      */
     @Override
-    public Individual mutate() {
+    public Individual mutate(SplittableRandom random) {
+        for (int tries = 0; tries < LIMIT_TRIES; tries++) {
+            BoardIndividual copy = mutateOnce(random);
+            if (!exceedTreeLimits(copy))
+                return copy;
+        }
+        return copyWithFitness();
+    }
+
+
+    /**
+     * Mutate one clone of the current instance, without checking the tree limits.
+     * @param random is the random stream that we draw the change from.
+     * @return a new clone of the current instance with some mutation.
+     */
+    private BoardIndividual mutateOnce(SplittableRandom random) {
         BoardIndividual copy = clone();
         int treeHeight = copy.tree.findHeight();
-        int changeInDeep = nextInc1ExcMax(treeHeight);
+        int changeInDeep = nextInc1ExcMax(treeHeight, random);
         int deep;
         Node<TerminalOrPrimitive> mover = copy.tree;
         Node<TerminalOrPrimitive> parent = mover;
 
         for (deep = 0; deep < changeInDeep && (mover.getValue().isPrimitive()); deep++) {
             parent = mover;
-            if (Math.random() < 0.5)
+            if (random.nextDouble() < 0.5)
                 mover = mover.getLeft();
             else
                 mover = mover.getRight();
         }
-        createFullTree(treeHeight - deep, mover);
+        createFullTree(treeHeight - deep, mover, random);
         ((Primitive) parent.getValue()).setLeft(parent.getLeft());
         ((Primitive) parent.getValue()).setRight(parent.getRight());
         return copy;
@@ -297,15 +1178,34 @@ public class BoardIndividual extends Individual {
      * from object's tree.
      * @param object is the {@code Individual} instance that we want to matting (crossover),
      *               with it.
+     * @param random is the random stream that we draw the exchanged sub trees from.
+     * If the new tree exceed the tree limits we try again, at most {@link #LIMIT_TRIES LIMIT_TRIES} times.
      * @return a new object that made as result of the matting (crossover) current instance and
-     * object parameter.
+     * object parameter, or a {@link #copyWithFitness() copy} of the current instance
+     * if all the new trees exceed the tree limits.
      */
     @Override
-    public Individual crossover(Individual object) {
+    public Individual crossover(Individual object, SplittableRandom random) {
+        for (int tries = 0; tries < LIMIT_TRIES; tries++) {
+            BoardIndividual copy = crossoverOnce(object, random);
+            if (!exceedTreeLimits(copy))
+                return copy;
+        }
+        return copyWithFitness();
+    }
+
+
+    /**
+     * Mate one clone of the current instance with the object parameter, without checking the tree limits.
+     * @param object is the {@code Individual} instance that we want to matting (crossover) with it.
+     * @param random is the random stream that we draw the exchanged sub trees from.
+     * @return a new object that made as result of the matting (crossover).
+     */
+    private BoardIndividual crossoverOnce(Individual object, SplittableRandom random) {
         BoardIndividual copy = clone();
         BoardIndividual other = (BoardIndividual) object;
-        if (Math.random() < 0.5) {
-            if (Math.random() < 0.5)
+        if (random.nextDouble() < 0.5) {
+            if (random.nextDouble() < 0.5)
                 copy.tree.setRight(copyFullTree(other.tree.getRight()));
             else
                 copy.tree.setRight(copyFullTree(other.tree.getLeft()));
@@ -313,7 +1213,7 @@ public class BoardIndividual extends Individual {
             ((Primitive) copy.tree.getValue()).setRight(copy.tree.getRight());
         }
         else {
-            if (Math.random() < 0.5)
+            if (random.nextDouble() < 0.5)
                 copy.tree.setLeft(copyFullTree(other.tree.getRight()));
             else
                 copy.tree.setLeft(copyFullTree(other.tree.getLeft()));
@@ -325,6 +1225,98 @@ public class BoardIndividual extends Individual {
     }
 
 
+    /**
+     * Point mutation: replace one random node of the tree in place, an operator with another operator
+     * or a terminal with another terminal, so the shape of the tree is NOT changed.
+     * We use it in the {@link MemeticSearch local search}, it's a small change unlike
+     * {@link #mutate(SplittableRandom) mutate}.
+     * @param random is the random stream that we draw the node and the new name from.
+     * @return a new clone of the current instance with the changed node.
+     */
+    public Individual pointMutate(SplittableRandom random) {
+        BoardIndividual copy = clone();
+        List<Node<TerminalOrPrimitive>> nodes = new ArrayList<>();
+        collectNodes(copy.tree, nodes);
+        Node<TerminalOrPrimitive> node = nodes.get(random.nextInt(nodes.size()));
+        String name = node.getValue().getOperationName();
+        if (node.getValue().isPrimitive()) {
+            Primitive primitive = new Primitive(pickOther(operators, name, random));
+            primitive.setLeft(node.getLeft());
+            primitive.setRight(node.getRight());
+            node.setValue(primitive);
+        }
+        else
+            node.setValue(new Terminal(pickOther(functions, name, random)));
+        return copy;
+    }
+
+
+    /**
+     * Collect all the nodes of the tree, in recursive way.
+     * @param node is the node that we reach in the recursive calling.
+     * @param nodes is the list that we add the nodes into.
+     */
+    private static void collectNodes(Node<TerminalOrPrimitive> node, List<Node<TerminalOrPrimitive>> nodes) {
+        if (node == null)
+            return;
+        nodes.add(node);
+        collectNodes(node.getLeft(), nodes);
+        collectNodes(node.getRight(), nodes);
+    }
+
+
+    /**
+     * Pick a random name from the gaven names, different from the current name if there is another one.
+     * @param names is the operator names or the function names.
+     * @param current is the current name.
+     * @param random is the random stream that we draw the name from.
+     * @return a random name.
+     */
+    private static String pickOther(List<String> names, String current, SplittableRandom random) {
+        if (names.size() == 1)
+            return names.get(0);
+        String name;
+        do {
+            name = names.get(random.nextInt(names.size()));
+        } while (name.equals(current));
+        return name;
+    }
+
+
+    /**
+     * Find the sudoku board after the player played, without changing the player, so it's safe to call it
+     * while other threads evaluate him (the individuals are shared by the hall of fame and the snapshots).
+     * We use the {@link #finalBoard kept board}, and if the player didn't keep it (he has only an upper bound,
+     * or his fitness was restored from a checkpoint) we play a clone of him, the play is deterministic,
+     * so we get the same board.
+     * @return the board after the play, or the {@link #originalSudoku original sudoku} if the player
+     * didn't play yet. The caller must NOT change it.
+     */
+    private int[][] playedBoard() {
+        if (!isEvaluated())
+            return originalSudoku;
+        final int[][] played = finalBoard;
+        if (played != null)
+            return played;
+        BoardIndividual copy = clone();
+        copy.play();
+        return copy.finalBoard;
+    }
+
+
+    /**
+     * Copy the gaven sudoku board.
+     * @param board is the board that we want to copy.
+     * @return a new 2D array with the same numbers.
+     */
+    private static int[][] copyBoard(int[][] board) {
+        final int[][] copy = new int[board.length][];
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = board[i].clone();
+        return copy;
+    }
+
+
     /**
      * Create {@code String} that represent this instance.
      * The {@code String} contain the sudoku board after solving,
@@ -335,10 +1327,11 @@ public class BoardIndividual extends Individual {
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder("Individual : \n\n");
+        final int[][] board = playedBoard();
         final int squareLength = (int) Math.sqrt(board.length);
 
         int originalEmptyCell = countEmptyCellInOriginalSudoku();
-        int currentEmptyCell = countEmptyCellInSudoku();
+        int currentEmptyCell = Terminal.countEmptyCellInSudoku(board);
         if (originalEmptyCell == currentEmptyCell)
             buf.append("this individual property not played\n\n");
         else {
@@ -400,12 +1393,13 @@ public class BoardIndividual extends Individual {
      * and if you run it with (3) argument it's return : 1 or 2
      * it's return a random number of focusing on min number is 1,
      * if you send max number larger than 1, then it will return number in range exclusive max.
-     * We using it in {@link #mutate() mutate} method, it's very important method.
+     * We using it in {@link #mutate(SplittableRandom) mutate} method, it's very important method.
      * @param max is the max limit of the range that we want to generate number from it.
+     * @param random is the random stream that we draw the number from.
      * @return a random number in the range 1 (inclusive) to max (exclusive).
      */
-    private int nextInc1ExcMax(int max) {
-        return 1 + (int) (Math.random() * (max - 1));
+    private int nextInc1ExcMax(int max, SplittableRandom random) {
+        return max > 1 ? 1 + random.nextInt(max - 1) : 1;
     }
 
 
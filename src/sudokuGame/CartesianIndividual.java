@@ -0,0 +1,388 @@
+package sudokuGame;
+
+import java.util.Hashtable;
+import java.util.SplittableRandom;
+
+/**
+ * {@code CartesianIndividual} is a player that hold a Cartesian GP genome instead of a tree.
+ * It use the same {@link Primitive operators} and the same {@link Terminal functions} as the trees,
+ * and it play exactly like {@link BoardIndividual}, only the grade of an option is computed in another way.
+ *
+ * <p>The genome is a fixed-length array of integers that describe a feed-forward graph:
+ * every node has 3 genes (the operator and the addresses of the left and the right operands), and the last
+ * gene is the address of the output. The addresses 0 to T-1 are the terminals (T is the amount of the functions),
+ * and the address T+i is the node i, a node can use only the terminals and the nodes before him.
+ * Only the active nodes (the nodes that the output depends on) are evaluated, in one loop over an array,
+ * and a node that is used several times is computed only once.
+ *
+ * <p>Copying the genome is copying an array, and the mutation is writing random genes into the array.
+ * The checkpoints and the {@link TreeLibrary library} support only trees.
+ * @see BoardIndividual
+ * @see <a href="https://en.wikipedia.org/wiki/Cartesian_genetic_programming">Cartesian Genetic Programming</a>
+ */
+public class CartesianIndividual extends BoardIndividual {
+
+    /** The values of the terminals and the nodes while we run the graph, for every thread */
+    private static final ThreadLocal<double[]> VALUES = ThreadLocal.withInitial(() -> new double[0]);
+
+    /** The amount of the nodes in the genome */
+    private final int nodes;
+
+    /** The terminals (the inputs of the graph), in the order of the functions */
+    private final Terminal[] terminals;
+
+    /** The operators that the nodes can use, in the order of the operators */
+    private final Primitive[] primitives;
+
+    /** The genome, 3 genes for every node and the output gene in the end */
+    private int[] genome;
+
+    /** The active part of the genome, null until we need it, we never change it after it's built */
+    private ActiveGraph active;
+
+
+    /**
+     * The active part of the genome, the nodes that the output depends on.
+     */
+    private static class ActiveGraph {
+        /** For every address, true if the output depends on it */
+        final boolean[] flags;
+        /** The active nodes, ascending, so every node come after his operands */
+        final int[] nodes;
+        /** The active terminals */
+        final int[] inputs;
+        /** On which parameters the output depends, see {@link TreeAnalyzer} */
+        final int dependencies;
+        /** The longest path from the output to a terminal */
+        final int height;
+
+        ActiveGraph(boolean[] flags, int[] nodes, int[] inputs, int dependencies, int height) {
+            this.flags = flags;
+            this.nodes = nodes;
+            this.inputs = inputs;
+            this.dependencies = dependencies;
+            this.height = height;
+        }
+    }
+
+
+    /**
+     * Initialize the instance with a random genome, from the gaven seeded random stream, the instance is
+     * usually a prototype and the population regenerate the genomes of the clones from the stream of the population.
+     * @param nodes is the amount of the nodes in the genome, the graph can use only part of them.
+     * @param board is reference of the sudoku that we want to solve.
+     * @param random is the random stream that we draw the genome from.
+     * @throws RuntimeException if the amount of the nodes is less than 1.
+     */
+    public CartesianIndividual(int nodes, int[][] board, SplittableRandom random) {
+        super(board);
+        if (nodes < 1)
+            throw new RuntimeException("Cartesian genome must have at least one node");
+        this.nodes = nodes;
+        this.terminals = new Terminal[functions.size()];
+        for (int i = 0; i < terminals.length; i++)
+            terminals[i] = new Terminal(functions.get(i));
+        this.primitives = new Primitive[operators.size()];
+        for (int i = 0; i < primitives.length; i++)
+            primitives[i] = new Primitive(operators.get(i));
+        this.genome = new int[3 * nodes + 1];
+        randomizeGenome(random);
+    }
+
+
+    /**
+     * Fill the genome with random genes.
+     * @param random is the random stream that we draw the genes from.
+     */
+    private void randomizeGenome(SplittableRandom random) {
+        for (int gene = 0; gene < genome.length; gene++)
+            genome[gene] = randomGene(gene, random);
+        active = null;
+    }
+
+
+    /**
+     * Draw a random valid value for the gaven gene.
+     * @param gene is the index of the gene in the genome.
+     * @param random is the random stream that we draw the value from.
+     * @return an operator index for an operator gene, an address before the node for an operand gene,
+     * or an address of a node for the output gene.
+     */
+    private int randomGene(int gene, SplittableRandom random) {
+        if (gene == 3 * nodes)
+            return terminals.length + random.nextInt(nodes);
+        int node = gene / 3;
+        if (gene % 3 == 0)
+            return random.nextInt(primitives.length);
+        return random.nextInt(terminals.length + node);
+    }
+
+
+    /**
+     * Get the active part of the genome, build it if we didn't build it yet.
+     * Several threads can build it together, they build the same graph.
+     * @return the active part of the genome.
+     */
+    private ActiveGraph graph() {
+        ActiveGraph graph = active;
+        if (graph == null) {
+            graph = buildActiveGraph();
+            active = graph;
+        }
+        return graph;
+    }
+
+
+    /**
+     * Find the active nodes, from the output back to the terminals.
+     * @return the active part of the genome.
+     */
+    private ActiveGraph buildActiveGraph() {
+        final int inputs = terminals.length;
+        boolean[] flags = new boolean[inputs + nodes];
+        flags[genome[3 * nodes]] = true;
+        int activeNodes = 0;
+        for (int node = nodes - 1; node >= 0; node--) {
+            if (flags[inputs + node]) {
+                flags[genome[3 * node + 1]] = true;
+                flags[genome[3 * node + 2]] = true;
+                activeNodes++;
+            }
+        }
+
+        int[] heights = new int[inputs + nodes];
+        int[] nodeList = new int[activeNodes];
+        int count = 0;
+        for (int node = 0; node < nodes; node++) {
+            if (flags[inputs + node]) {
+                nodeList[count++] = node;
+                heights[inputs + node] = 1 + Math.max(heights[genome[3 * node + 1]], heights[genome[3 * node + 2]]);
+            }
+        }
+
+        int activeInputs = 0;
+        int dependencies = 0;
+        for (int input = 0; input < inputs; input++) {
+            if (flags[input]) {
+                activeInputs++;
+                dependencies |= TreeAnalyzer.findDependencies(terminals[input].getOperationName());
+            }
+        }
+        int[] inputList = new int[activeInputs];
+        count = 0;
+        for (int input = 0; input < inputs; input++) {
+            if (flags[input])
+                inputList[count++] = input;
+        }
+        return new ActiveGraph(flags, nodeList, inputList, dependencies, heights[genome[3 * nodes]]);
+    }
+
+
+    /**
+     * Compute the grade of the option by running the active nodes of the graph, in one loop.
+     * The operators and the terminals are the same as in the trees, so a graph and a tree
+     * that describe the same expression give exactly the same grade.
+     */
+    @Override
+    double run(final int row, final int col, final int key, final int[][] board,
+               final Hashtable<Integer, Double>[][] gradeboard, final BoardFeatures features) {
+        final ActiveGraph graph = graph();
+        final int inputs = terminals.length;
+        double[] values = VALUES.get();
+        if (values.length < inputs + nodes) {
+            values = new double[inputs + nodes];
+            VALUES.set(values);
+        }
+        for (int input : graph.inputs)
+            values[input] = terminals[input].run(row, col, key, board, gradeboard, features);
+        for (int node : graph.nodes) {
+            final int gene = 3 * node;
+            values[inputs + node] = primitives[genome[gene]].apply(values[genome[gene + 1]], values[genome[gene + 2]]);
+        }
+        return values[genome[3 * nodes]];
+    }
+
+
+    /**
+     * Find the active nodes before the play, there is no tree to simplify.
+     * @param dimensions is the dimensions of the board that the individual play on.
+     */
+    @Override
+    void prepareEvaluationTree(int dimensions) {
+        graph();
+    }
+
+
+    @Override
+    boolean gradeDependsOnCell() {
+        return (graph().dependencies & TreeAnalyzer.DEPENDS_ON_CELL) != 0;
+    }
+
+
+    @Override
+    boolean gradeDependsOnKey() {
+        return (graph().dependencies & TreeAnalyzer.DEPENDS_ON_KEY) != 0;
+    }
+
+
+    /**
+     * Count the active nodes and the active terminals, this is what we run for every option in the board.
+     * @return the size of the active graph.
+     */
+    @Override
+    int getSize() {
+        ActiveGraph graph = graph();
+        return graph.nodes.length + graph.inputs.length;
+    }
+
+
+    @Override
+    int getEvaluationSize() {
+        return getSize();
+    }
+
+
+    /**
+     * Find the longest path from the output to a terminal.
+     * @return the height of the active graph.
+     */
+    @Override
+    int findHeight() {
+        return graph().height;
+    }
+
+
+    /**
+     * There is no tree in Cartesian individual.
+     * @throws RuntimeException always, the checkpoints and the library support only trees.
+     */
+    @Override
+    Node<TerminalOrPrimitive> getTree() {
+        throw new RuntimeException("Cartesian individuals don't have a tree, the checkpoints and the library support only trees");
+    }
+
+
+    /**
+     * Generate a new random genome, instead of a new tree.
+     */
+    @Override
+    public void reGenerateFullTree(SplittableRandom random) {
+        randomizeGenome(random);
+    }
+
+
+    /**
+     * Point mutation: write random values into random genes, until we changed at least one active gene.
+     * Changing only inactive genes create a player that play exactly like the parent, so it's a waste of play.
+     * @param random is the random stream that we draw the genes from.
+     * @return a new clone of the current instance with the mutation.
+     */
+    @Override
+    public Individual mutate(SplittableRandom random) {
+        final ActiveGraph graph = graph();
+        CartesianIndividual copy = clone();
+        boolean activeChanged = false;
+        while (!activeChanged) {
+            int gene = random.nextInt(genome.length);
+            int value = randomGene(gene, random);
+            if (value != copy.genome[gene]) {
+                copy.genome[gene] = value;
+                activeChanged = gene == 3 * nodes || graph.flags[terminals.length + gene / 3];
+            }
+        }
+        return copy;
+    }
+
+
+    /**
+     * The {@link #mutate(SplittableRandom) mutation} of the genome is already a point mutation.
+     * @param random is the random stream that we draw the genes from.
+     * @return a new clone of the current instance with the mutation.
+     */
+    @Override
+    public Individual pointMutate(SplittableRandom random) {
+        return mutate(random);
+    }
+
+
+    /**
+     * One point crossover between the genomes, the nodes before the point are from the current instance
+     * and the nodes after the point (and the output) are from the other. The operands of a node are always
+     * before him, so the new genome is valid.
+     * @param object is the {@code Individual} instance that we want to matting (crossover) with it.
+     * @param random is the random stream that we draw the crossover point from.
+     * @return a new object that made as result of the crossover, or a {@link #copyWithFitness() copy} of the
+     * current instance if the other is NOT a Cartesian individual with the same genome length.
+     */
+    @Override
+    public Individual crossover(Individual object, SplittableRandom random) {
+        if (!(object instanceof CartesianIndividual))
+            return copyWithFitness();
+        CartesianIndividual other = (CartesianIndividual) object;
+        if (other.genome.length != genome.length || other.terminals.length != terminals.length)
+            return copyWithFitness();
+        CartesianIndividual copy = clone();
+        int point = 3 * (1 + random.nextInt(nodes));
+        System.arraycopy(other.genome, point, copy.genome, point, genome.length - point);
+        return copy;
+    }
+
+
+    /**
+     * Describe the active graph, one node after another.
+     * @param infix is true for infix operators, false for prefix.
+     * @return a string that represent the active graph, the nodes are named n0, n1, ...
+     */
+    private String describe(boolean infix) {
+        StringBuilder st = new StringBuilder();
+        for (int node : graph().nodes) {
+            final int gene = 3 * node;
+            String operation = primitives[genome[gene]].getOperationName();
+            st.append("n").append(node).append(" = ");
+            if (infix)
+                st.append("(").append(addressName(genome[gene + 1])).append(" ")
+                        .append(ConvertFromFunctionToOperator(operation)).append(" ")
+                        .append(addressName(genome[gene + 2])).append(")");
+            else
+                st.append(operation).append("( ").append(addressName(genome[gene + 1])).append("  ")
+                        .append(addressName(genome[gene + 2])).append(" )");
+            st.append("; ");
+        }
+        return st.append("output = ").append(addressName(genome[3 * nodes])).toString();
+    }
+
+
+    /**
+     * Get the name of an address in the genome.
+     * @param address is the address of a terminal or a node.
+     * @return the function name of a terminal, or n and the index of a node.
+     */
+    private String addressName(int address) {
+        return address < terminals.length ? terminals[address].getOperationName() : "n" + (address - terminals.length);
+    }
+
+
+    @Override
+    String treeAsPrefixExpression() {
+        return describe(false);
+    }
+
+
+    @Override
+    String treeAsInfixExpression() {
+        return describe(true);
+    }
+
+
+    /**
+     * Clone the current instance, the genome is copied (it's just an array), the copy didn't play yet.
+     * @return new instance (deep copy) that equal to the current instance.
+     */
+    @Override
+    public CartesianIndividual clone() {
+        CartesianIndividual copy = (CartesianIndividual) super.clone();
+        copy.genome = genome.clone();
+        copy.active = null;
+        return copy;
+    }
+}
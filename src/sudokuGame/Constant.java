@@ -0,0 +1,77 @@
+package sudokuGame;
+
+import java.util.Hashtable;
+
+/**
+ * {@code Constant} class is representing a terminal node that always return the same number,
+ * no matter which cell, number or board we run it on.
+ * We don't generate constants in the random trees, they are created only by the
+ * {@link TreeSimplifier} when it fold a part of the tree that always calculate the same number,
+ * for example {@code Minus(x, x)} is always 0.
+ * The {@link #operationName operationName} of the constant is his value, so it's printed in the trees expressions.
+ * @see TreeSimplifier
+ * @see Terminal
+ */
+public class Constant extends Terminal {
+
+    /** The number that the constant return */
+    private final double value;
+
+
+    /**
+     * Constructor that initialize {@code Constant} instance with his value.
+     * @param value is the number that the constant return.
+     */
+    public Constant(double value) {
+        super(Double.toString(value));
+        this.value = value;
+    }
+
+
+    /**
+     * Returns the number that the constant return.
+     * @return the value of the constant.
+     */
+    public double getValue() {
+        return value;
+    }
+
+
+    /**
+     * We need to clone the tree in the future, so we need to clone
+     * {@link Node#value T value} in {@link Node} Class.
+     * So we cloning {@code Constant} instances.
+     * @return a clone of {@code Constant} instance.
+     */
+    @Override
+    protected Constant clone() {
+        return (Constant) super.clone();
+    }
+
+
+    /**
+     * Return the {@link #value value} of the constant, the parameters are ignored.
+     * @param row The index of the row in the Sudoku board.
+     * @param col The index of the column in the Sudoku board.
+     * @param key One of the options that can be inserted in [row,col] in the board without conflict.
+     * @param board Reference to the Sudoku board matrix.
+     * @param gradeBoard Reference to matrix of hash tables of the options and their grades.
+     * @return the value of the constant.
+     */
+    @Override
+    double run(final int row, final int col, final int key, final int[][] board,
+               final Hashtable<Integer,Double> [][] gradeBoard) {
+        return value;
+    }
+
+
+    /**
+     * Return the {@link #value value} of the constant, the constant doesn't need the features.
+     * @return the value of the constant.
+     */
+    @Override
+    double run(final int row, final int col, final int key, final int[][] board,
+               final Hashtable<Integer,Double> [][] gradeBoard, final BoardFeatures features) {
+        return value;
+    }
+}
@@ -1,46 +1,297 @@
 package sudokuGame;
 
+import java.util.SplittableRandom;
+
 /**
  * The initial settings of the application,
  * and the start point of the application.
+ * The settings are the fields below, {@link #run() run} load a board and evolve it with them.
+ * The benchmarks change the settings and call {@link #evolve(int[][], SplittableRandom, PopulationCheckpoint,
+ * boolean) evolve} on their boards, so they measure exactly the same pipeline as the application.
  */
 public class Driver {
-	
-	public static void main(String[] args) {
 
-	    /* Population size, the amount of the individuals in the population*/
-        int popSize = 100;
+    /* Population size, the amount of the individuals in the population*/
+    int popSize = 100;
+
+    /* Max generations, the max attempts of creating generations to solve the sudoku*/
+    int maxGenerations = 100;
+
+    /* Mutation probability, is the probability to apply mutation*/
+    double mutationProb = 0.3;
+
+    /* Crossover probability, is the probability to apply crossover*/
+    double crossoverProb = 0.7;
+
+    /* Percent of good population, percent of what we consider as a good individuals*/
+    double goodPopulationPercent = 0.4;
+
+    /* Tournament size, select the best of k random individuals, the population is NOT sorted,
+    0 mean select randomly from the good percent of the sorted population*/
+    int tournamentSize = 0;
+
+    /* Adaptive rates, change the mutation and crossover probabilities according to their progress*/
+    boolean adaptiveRates = false;
+
+    /* Steady state, evolve without generations, every worker thread create, evaluate and insert
+    new individuals instead of the worst ones, the budget is maxGenerations * popSize new individuals.
+    It does NOT support the checkpoints, the memetic search, the restarts and the screening*/
+    boolean steadyState = false;
+    int steadyStateThreads = Runtime.getRuntime().availableProcessors();
+
+    /* Tree height, the height of the trees in the individuals*/
+    int height = 5;
+
+    /* Cartesian nodes, the individuals hold a Cartesian GP genome with this amount of nodes instead of a tree,
+    0 mean trees. The checkpoints and the library support only trees*/
+    int cartesianNodes = 0;
+
+    /* Max tree height and max tree size (nodes) after mutation or crossover, 0 mean no limit*/
+    int maxTreeHeight = 0;
+    int maxTreeSize = 0;
+
+    /* Parsimony, between individuals with the same fitness prefer the smaller trees*/
+    boolean parsimony = false;
+
+    /* Parallel play, evaluate the grades of one player with all the cores on big boards or big trees,
+    0 mean never by this threshold*/
+    int parallelDimensions = 16;
+    int parallelTreeSize = 0;
+
+    /* Batch placement, place in every pass all the non-conflicting numbers with grade up to the smallest
+    grade + batchTolerance and all the cells with one option, instead of only the number with the smallest grade*/
+    boolean batchPlacement = false;
+    double batchTolerance = 0;
+
+    /* Search budget, when the greedy play ends with empty cells, play again as a depth-first search
+    (ordered by the grades) that visit up to searchBudget board states, 0 mean only the greedy play*/
+    int searchBudget = 0;
+
+    /* Memetic search, after every generation try point mutations on the memeticTop best individuals,
+    up to memeticBudget evaluations, and keep the improvements. 0 mean no local search*/
+    int memeticTop = 0;
+    int memeticBudget = 50;
+
+    /* Evaluation threads, play the new individuals of every generation in parallel, the most expensive
+    (estimated by a cost model) first, 1 mean one after another in the main thread*/
+    int evaluationThreads = Runtime.getRuntime().availableProcessors();
+
+    /* Hall of fame size, the amount of the best individuals (the best trees) that we keep from the whole run
+    and print in the end, 0 mean no hall of fame*/
+    int hallOfFameSize = 10;
+
+    /* Feature cache size, max amount of the board states that their features are shared by all the players,
+    0 mean no cache*/
+    int featureCacheSize = 20000;
+
+    /* Sudoku dimensions, is the sudoku board dimensions*/
+    int sudokuDimensions = 9;
+
+    /* File path that contain the sudoku boards, in specific format*/
+    String filePath="boards/realBoards.txt";
 
-        /* Max generations, the max attempts of creating generations to solve the sudoku*/
-        int maxGenerations = 100;
+    /* Screen fraction, percent of the empty cells that played before the full play, 0 mean no screen*/
+    double screenFraction = 0;
 
-        /* Mutation probability, is the probability to apply mutation*/
-        double mutationProb = 0.3;
+    /* Audit interval, fully evaluate one of every auditInterval screened only individuals*/
+    int auditInterval = 10;
 
-        /* Crossover probability, is the probability to apply crossover*/
-        double crossoverProb = 0.7;
+    /* Plateau generations, restart the population after plateauGenerations generations without improvement*/
+    int plateauGenerations = 10;
 
-        /* Percent of good population, percent of what we consider as a good individuals*/
-        double goodPopulationPercent = 0.4;
+    /* Max restarts, the restart budget of the whole evolution, 0 mean no restarts*/
+    int maxRestarts = 0;
 
-        /* Tree height, the height of the trees in the individuals*/
-        int height = 5;
+    /* Restart keep fraction, percent of the best individuals that kept in a restart*/
+    double restartKeepFraction = 0.1;
 
-        /* Sudoku dimensions, is the sudoku board dimensions*/
-        int sudokuDimensions = 9;
+    /* Checkpoint file path, the population is saved into this file while evolving, null mean no checkpoints*/
+    String checkpointPath = null;
 
-        /* File path that contain the sudoku boards, in specific format*/
-        String filePath="boards/realBoards.txt";
+    /* Checkpoint interval, save the population every checkpointInterval generations*/
+    int checkpointInterval = 10;
 
+    /* Resume, continue the evolution from the checkpoint file if it exist*/
+    boolean resume = false;
 
-        final SudokuFileUtil fileUtil = new SudokuFileUtil(filePath, sudokuDimensions);
-        int[][] board = fileUtil.loadPrintSudoku();
+    /* Library directory, library of good trees from previous runs, null mean no library*/
+    String libraryPath = null;
 
-        Individual prototype = new BoardIndividual(height, board);
-        Selection select = new TournamentSelection(mutationProb, crossoverProb, goodPopulationPercent);
-        Population firstPopulation = new Population(popSize, prototype, select);
-        Evolution evolution = new Evolution(firstPopulation, maxGenerations);
-        evolution.evolve();
+    /* Library fraction, percent of the first generation that seeded from the library*/
+    double libraryFraction = 0.2;
+
+    /* Library size, max amount of the trees that kept in the library for every board size*/
+    int librarySize = 200;
+
+    /* Random seed, the same seed choose the same board and evolve the same individuals
+    (with one steady state worker), we print it so a run can be repeated*/
+    long seed = System.nanoTime();
+
+    /* Verbose, print the best individual of every generation, the hall of fame and the feature cache*/
+    boolean verbose = true;
+
+    /* Reports, write the report file of the evolution into the reports directory*/
+    boolean reports = true;
+
+
+    /**
+     * The result of one {@link #evolve(int[][], SplittableRandom, PopulationCheckpoint, boolean) evolution}.
+     */
+    static class Outcome {
+        /** The final population, sorted */
+        final Population population;
+        /** The generations that we played, in the steady state the new individuals divided by the population size */
+        final int generations;
+        /** The amount of the individuals that were evaluated */
+        final long evaluations;
+
+        Outcome(Population population, int generations, long evaluations) {
+            this.population = population;
+            this.generations = generations;
+            this.evaluations = evaluations;
+        }
+    }
+
+
+    public static void main(String[] args) {
+        new Driver().run();
     }
 
+
+    /**
+     * Run the application with the settings: load the board (or resume from the checkpoint), evolve it,
+     * and print the result.
+     * @throws RuntimeException if the settings ask for checkpoints or a library with Cartesian genomes,
+     * or for checkpoints in the steady state.
+     */
+    void run() {
+        if (cartesianNodes > 0 && (checkpointPath != null || libraryPath != null))
+            throw new RuntimeException("The checkpoints and the library support only trees, NOT Cartesian genomes");
+        if (steadyState && checkpointPath != null)
+            throw new RuntimeException("The checkpoints support only the generational evolution, NOT the steady state");
+
+        System.out.println("Random seed: " + seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        /* We split the stream of the checkpoints even without checkpoints, so they never change the evolution */
+        SplittableRandom checkpointSeeds = random.split();
+        PopulationCheckpoint checkpoint = checkpointPath != null ?
+                new PopulationCheckpoint(checkpointPath, checkpointSeeds) : null;
+        boolean resumed = resume && checkpoint != null && checkpoint.exists();
+
+        int[][] board;
+        if (resumed) {
+            checkpoint.load();
+            board = checkpoint.getBoard();
+            SudokuFileUtil.printSudoku(board);
+        }
+        else {
+            final SudokuFileUtil fileUtil = new SudokuFileUtil(filePath, sudokuDimensions);
+            board = fileUtil.loadPrintSudoku(random.split());
+        }
+        evolve(board, random, checkpoint, resumed);
+    }
+
+
+    /**
+     * The pipeline of the application: create the prototype, the selection, the screening, the library,
+     * the stagnation policy, the hall of fame and the scheduler with the settings, and then the first population
+     * (or restore it from the checkpoint) and evolve it, with generations or in the steady state.
+     * If we are {@link #verbose verbose} we print the hall of fame and the feature cache in the end.
+     * @param board is the sudoku board, the evolution own it.
+     * @param random is the random stream of the run, we split from it the streams of the prototype and the population.
+     * @param checkpoint is the checkpoint that we save into, null mean no checkpoints.
+     * @param resumed is true if the checkpoint is loaded and we continue from it.
+     * @return the result of the evolution.
+     * @throws RuntimeException if the settings combine options that can NOT work together.
+     */
+    Outcome evolve(int[][] board, SplittableRandom random, PopulationCheckpoint checkpoint, boolean resumed) {
+        /* A tournament has no elite, it would select by the loose upper bounds of the screen */
+        if (screenFraction > 0 && tournamentSize > 0)
+            throw new RuntimeException("The fitness screening needs the truncation selection (tournament size 0)");
+        /* The steady state has no generations to screen, search or restart after */
+        if (steadyState && (memeticTop > 0 || maxRestarts > 0 || screenFraction > 0))
+            throw new RuntimeException("The memetic search, the restarts and the screening support only " +
+                    "the generational evolution, NOT the steady state");
+        if (steadyState && checkpoint != null)
+            throw new RuntimeException("The checkpoints support only the generational evolution, NOT the steady state");
+        BoardIndividual prototype = cartesianNodes > 0 ? new CartesianIndividual(cartesianNodes, board, random.split())
+                : new BoardIndividual(height, board, random.split());
+        prototype.setTreeLimits(maxTreeHeight, maxTreeSize);
+        prototype.setParallelThresholds(parallelDimensions, parallelTreeSize);
+        prototype.setBatchPlacement(batchPlacement, batchTolerance);
+        prototype.setSearchBudget(searchBudget);
+        BoardFeatureCache featureCache = featureCacheSize > 0 ? new BoardFeatureCache(featureCacheSize) : null;
+        prototype.setFeatureCache(featureCache);
+        TournamentSelection select = adaptiveRates ?
+                new AdaptiveSelection(mutationProb, crossoverProb, goodPopulationPercent) :
+                new TournamentSelection(mutationProb, crossoverProb, goodPopulationPercent);
+        select.setParsimonious(parsimony);
+        select.setTournamentSize(tournamentSize);
+        FitnessScreening screening = screenFraction > 0 ?
+                new FitnessScreening(screenFraction, goodPopulationPercent, auditInterval) : null;
+        TreeLibrary library = libraryPath != null ? new TreeLibrary(libraryPath, librarySize) : null;
+        StagnationPolicy stagnation = maxRestarts > 0 ?
+                new StagnationPolicy(plateauGenerations, restartKeepFraction, maxRestarts) : null;
+        HallOfFame hallOfFame = hallOfFameSize > 0 ? new HallOfFame(hallOfFameSize) : null;
+        EvaluationScheduler scheduler = new EvaluationScheduler(evaluationThreads);
+        try {
+            return evolve(prototype, select, screening, library, stagnation, hallOfFame, scheduler, random,
+                    checkpoint, resumed);
+        }
+        finally {
+            scheduler.close();
+            if (verbose && hallOfFame != null)
+                System.out.println(hallOfFame);
+            if (verbose && featureCache != null)
+                System.out.println(featureCache);
+        }
+    }
+
+
+    /**
+     * Create the first population (or restore it from the checkpoint) and evolve it,
+     * with generations or in the steady state.
+     * @param prototype is the prototype of the individuals, he hold the board.
+     * @param select is the selection.
+     * @param screening is the cheap screen of the individuals, null mean no screen.
+     * @param library is the library of good trees, null mean no library.
+     * @param stagnation decide when we restart the population, null mean no restarts.
+     * @param hallOfFame is the hall of fame, null mean no hall of fame.
+     * @param scheduler play the new individuals in parallel.
+     * @param random is the random stream of the run, we split from it the stream of the population.
+     * @param checkpoint is the checkpoint that we save into, null mean no checkpoints.
+     * @param resumed is true if the checkpoint is loaded and we continue from it.
+     * @return the result of the evolution.
+     */
+    private Outcome evolve(BoardIndividual prototype, TournamentSelection select, FitnessScreening screening,
+                           TreeLibrary library, StagnationPolicy stagnation, HallOfFame hallOfFame,
+                           EvaluationScheduler scheduler, SplittableRandom random, PopulationCheckpoint checkpoint,
+                           boolean resumed) {
+        Population firstPopulation = resumed ? checkpoint.restorePopulation(prototype, select, screening, library)
+                : new Population(popSize, prototype, select, screening, library, libraryFraction, random.split(),
+                scheduler);
+        firstPopulation.setScheduler(scheduler);
+        if (steadyState) {
+            SteadyStateEvolution evolution = new SteadyStateEvolution(firstPopulation, maxGenerations * popSize,
+                    steadyStateThreads);
+            evolution.setHallOfFame(hallOfFame);
+            evolution.setVerbose(verbose);
+            evolution.setReporting(reports);
+            evolution.evolve();
+            return new Outcome(firstPopulation, (int) Math.ceil(evolution.getEvaluations() / (double) popSize),
+                    firstPopulation.getEvaluations() + evolution.getEvaluations());
+        }
+        else {
+            final int startGeneration = resumed ? checkpoint.getGeneration() : 0;
+            Evolution evolution = new Evolution(firstPopulation, maxGenerations, checkpoint, checkpointInterval,
+                    startGeneration, stagnation);
+            evolution.setMemeticSearch(memeticTop > 0 ? new MemeticSearch(memeticTop, memeticBudget) : null);
+            evolution.setHallOfFame(hallOfFame);
+            evolution.setVerbose(verbose);
+            evolution.setReporting(reports);
+            evolution.evolve();
+            return new Outcome(firstPopulation, evolution.getLastGeneration() + 1 - startGeneration,
+                    firstPopulation.getEvaluations());
+        }
+    }
 }
@@ -0,0 +1,311 @@
+package sudokuGame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code EvaluationScheduler} evaluate (play) the new individuals of a generation in parallel,
+ * on a fixed pool of worker threads.
+ * The plays are very different in their time: a big tree is slow in every pass over the gradeboard,
+ * and a player that stop early make only few passes. If we split the individuals into equal chunks,
+ * some threads finish early and wait for the thread with the slow players in the end of the generation.
+ *
+ * <p>So we estimate the cost of every play with a cost model, and submit the plays from the most expensive
+ * to the cheapest (longest first). The pool take the plays in the order of the submission, so the expensive plays
+ * start first and the cheap plays fill the gaps in the end, and the generation take about the total work
+ * divided by the amount of the threads.
+ *
+ * <p>The cost model is time = a * (pass work * passes) + b * passes: in every pass over the gradeboard we run
+ * the simplified tree for every option ({@link BoardIndividual#estimatePassWork()} the pass work is the
+ * nodes that we run in a pass), and every pass has also a fixed part (find the options, choose the best).
+ * The passes of a new individual are estimated by the passes of his parent ({@link BoardIndividual#getPlaySteps()}),
+ * or the average passes of the last generation for a new random individual.
+ * We measure every play and fit a and b (least squares) after every batch of plays, the old measures
+ * lose half of their weight every generation, so the model follow the changes of the population.
+ *
+ * <p>Besides the full plays, the scheduler run any other {@link Job job} of the players, like the truncated
+ * plays of the {@link FitnessScreening screening} and the continued plays of the players that it promote,
+ * so the generation is parallel with or without the screening. The statistics (jobs, wall time and
+ * utilization) are of all the jobs of the last generation.
+ * @see Population
+ * @see FitnessScreening
+ * @see BoardIndividual
+ */
+public class EvaluationScheduler {
+
+    /** The weight of the old measures in the cost model after every generation */
+    private static final double DECAY = 0.5;
+
+    /** The amount of the worker threads */
+    private final int threads;
+
+    /** The worker threads, null if we play in the calling thread */
+    private final ExecutorService pool;
+
+    /** The weighted sums of the measures for the least squares, x1 = pass work * passes and x2 = passes */
+    private double sumX1X1, sumX1X2, sumX2X2, sumX1Y, sumX2Y;
+
+    /** The nanoseconds of one node that we run, the a of the cost model */
+    private double nodeStepNanos = 1;
+
+    /** The fixed nanoseconds of one pass, the b of the cost model */
+    private double stepNanos;
+
+    /** The average passes of the plays in the last generation */
+    private double averageSteps;
+
+    /** The amount of the jobs in the last generation */
+    private int jobs;
+
+    /** The time that the jobs of the last generation took, the sum of the batches walls, in nanoseconds */
+    private long wallNanos;
+
+    /** The sum of the times of the jobs in the last generation, in nanoseconds */
+    private long workNanos;
+
+
+    /**
+     * The work of one player that we {@link #run(List, Job) run} in the scheduler, it may play
+     * only a part of the board. It must touch only the player and the results of his index,
+     * since the jobs of the other players run at the same time.
+     */
+    interface Job {
+        /**
+         * Do the work of one player.
+         * @param player is the player.
+         * @param index is the index of the player in the list of the batch.
+         * @return the passes over the gradeboard that the player made in this job, for the cost model.
+         */
+        int play(BoardIndividual player, int index);
+    }
+
+
+    /**
+     * Initialize the scheduler and start the worker threads.
+     * @param threads is the amount of the worker threads, 1 or less mean that we play in the calling thread.
+     */
+    public EvaluationScheduler(int threads) {
+        this.threads = Math.max(1, threads);
+        if (this.threads == 1) {
+            pool = null;
+            return;
+        }
+        final AtomicInteger counter = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(this.threads, task -> {
+            Thread worker = new Thread(task, "evaluation-worker-" + counter.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+
+
+    /**
+     * Start the statistics of a new generation, and reduce the weight of the old measures in the cost model.
+     * The {@link Population population} call it once before it evaluate a generation.
+     */
+    void startGeneration() {
+        jobs = 0;
+        wallNanos = workNanos = 0;
+        sumX1X1 *= DECAY;
+        sumX1X2 *= DECAY;
+        sumX2X2 *= DECAY;
+        sumX1Y *= DECAY;
+        sumX2Y *= DECAY;
+    }
+
+
+    /**
+     * Play all the individuals that didn't play yet, the most expensive first, and wait until they finished.
+     * After that every individual has his fitness, and we update the cost model with the measured times.
+     * @param individuals is the individuals of the generation, some of them may already have a fitness.
+     * @throws RuntimeException if one of the plays failed, or if we were interrupted while waiting.
+     */
+    void evaluate(Individual[] individuals) {
+        List<BoardIndividual> pending = new ArrayList<>();
+        for (Individual individual : individuals)
+            if (!individual.isEvaluated())
+                pending.add((BoardIndividual) individual);
+        run(pending, (player, index) -> {
+            player.getFitness();
+            return player.getPlaySteps();
+        });
+    }
+
+
+    /**
+     * Run the job of every player, the most expensive first, and wait until they finished.
+     * We update the cost model with the measured times and the passes that the jobs returned.
+     * @param players is the players of the batch, every player appear only once.
+     * @param job is the work of one player.
+     * @throws RuntimeException if one of the jobs failed, or if we were interrupted while waiting.
+     */
+    void run(List<BoardIndividual> players, Job job) {
+        if (players.isEmpty())
+            return;
+        final BoardIndividual[] order = players.toArray(new BoardIndividual[0]);
+        final long[] passWork = new long[order.length];
+        final double[] cost = new double[order.length];
+        Integer[] indices = new Integer[order.length];
+        for (int i = 0; i < order.length; i++) {
+            passWork[i] = order[i].estimatePassWork();
+            cost[i] = estimateCost(passWork[i], order[i].getPlaySteps());
+            indices[i] = i;
+        }
+        Arrays.sort(indices, Comparator.comparingDouble(i -> -cost[i]));
+
+        final long[] times = new long[order.length];
+        final int[] steps = new int[order.length];
+        final long start = System.nanoTime();
+        if (pool == null) {
+            for (int i : indices)
+                times[i] = play(order[i], i, job, steps);
+        }
+        else {
+            List<Future<Long>> futures = new ArrayList<>(order.length);
+            for (int i : indices) {
+                final BoardIndividual player = order[i];
+                futures.add(pool.submit(() -> play(player, i, job, steps)));
+            }
+            try {
+                for (int k = 0; k < indices.length; k++)
+                    times[indices[k]] = futures.get(k).get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for the evaluations", e);
+            }
+            catch (ExecutionException e) {
+                throw new RuntimeException("The evaluation of an individual failed", e.getCause());
+            }
+        }
+        wallNanos += System.nanoTime() - start;
+        jobs += order.length;
+        calibrate(passWork, steps, times);
+    }
+
+
+    /**
+     * Run the job of one player and measure the time of the job.
+     * @param player is the player that we let play.
+     * @param index is the index of the player in the batch.
+     * @param job is the work of the player.
+     * @param steps is the passes of every player in the batch, we write the passes of this player.
+     * @return the time of the job, in nanoseconds.
+     */
+    private static long play(BoardIndividual player, int index, Job job, int[] steps) {
+        long start = System.nanoTime();
+        steps[index] = job.play(player, index);
+        return System.nanoTime() - start;
+    }
+
+
+    /**
+     * Estimate the time of the play of an individual with the cost model.
+     * @param passWork is the nodes that the individual run in one pass.
+     * @param parentSteps is the passes of his parent, 0 if we don't know them.
+     * @return the estimated time of his play, in nanoseconds.
+     */
+    private double estimateCost(long passWork, int parentSteps) {
+        double steps = parentSteps > 0 ? parentSteps : Math.max(1, averageSteps);
+        return steps * (nodeStepNanos * passWork + stepNanos);
+    }
+
+
+    /**
+     * Add the measures of a batch to the cost model, and fit the model again.
+     * If the fit isn't valid (a negative or an undefined coefficient), we use only the work part.
+     * @param passWork is the nodes that every player run in one pass.
+     * @param playSteps is the passes of every job.
+     * @param times is the time of every job, in nanoseconds.
+     */
+    private void calibrate(long[] passWork, int[] playSteps, long[] times) {
+        double steps = 0;
+        for (int i = 0; i < times.length; i++) {
+            double x2 = playSteps[i];
+            double x1 = passWork[i] * x2;
+            double y = times[i];
+            sumX1X1 += x1 * x1;
+            sumX1X2 += x1 * x2;
+            sumX2X2 += x2 * x2;
+            sumX1Y += x1 * y;
+            sumX2Y += x2 * y;
+            steps += x2;
+            workNanos += times[i];
+        }
+        averageSteps = steps / times.length;
+
+        double determinant = sumX1X1 * sumX2X2 - sumX1X2 * sumX1X2;
+        double a = determinant != 0 ? (sumX1Y * sumX2X2 - sumX2Y * sumX1X2) / determinant : -1;
+        double b = determinant != 0 ? (sumX2Y * sumX1X1 - sumX1Y * sumX1X2) / determinant : -1;
+        if (a > 0 && b >= 0) {
+            nodeStepNanos = a;
+            stepNanos = b;
+        }
+        else if (sumX1X1 > 0 && sumX1Y > 0) {
+            nodeStepNanos = sumX1Y / sumX1X1;
+            stepNanos = 0;
+        }
+    }
+
+
+    /**
+     * Stop the worker threads, we call it at the end of the evolution.
+     */
+    public void close() {
+        if (pool == null)
+            return;
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Get the amount of the worker threads.
+     * @return the amount of the threads.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+
+    /**
+     * Get the amount of the jobs in the last generation (full plays, and the jobs of the screening).
+     * @return the amount of the jobs.
+     */
+    public int getJobs() {
+        return jobs;
+    }
+
+
+    /**
+     * Get the wall time of the jobs in the last generation, the sum of the time from the first job
+     * to the last job of every batch.
+     * @return the wall time in milliseconds.
+     */
+    public double getWallMillis() {
+        return wallNanos / 1e6;
+    }
+
+
+    /**
+     * Get the part of the time that the threads played in the last generation: the sum of the plays times
+     * divided by the wall time of all the threads, 1 mean that no thread waited.
+     * @return the utilization of the threads, 0 if nothing played.
+     */
+    public double getUtilization() {
+        return wallNanos > 0 ? (double) workNanos / ((double) wallNanos * threads) : 0;
+    }
+}
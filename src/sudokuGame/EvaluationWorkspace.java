@@ -0,0 +1,97 @@
+package sudokuGame;
+
+import java.util.ArrayDeque;
+import java.util.Hashtable;
+
+/**
+ * {@code EvaluationWorkspace} hold the state of a play: the solving board and the gradeboard
+ * (the options of every cell and their grades). Only the players that are playing right now need
+ * this state, so instead of a board and NxN hash tables in every {@link BoardIndividual},
+ * every thread has his own workspaces and the players borrow them while they play.
+ *
+ * <p>The workspaces of a thread are kept in a small pool, usually it's only one workspace, but if a
+ * thread start another play in the middle of a play (for example a {@link java.util.concurrent.ForkJoinPool
+ * ForkJoinPool} thread that run another task while he wait), the inner play get another workspace.
+ *
+ * <p>A workspace remember which player used it last and how many numbers he placed, so if the same player
+ * continue to play on the same thread (like in {@link FitnessScreening}) we don't need to restore his state.
+ * @see BoardIndividual
+ */
+final class EvaluationWorkspace {
+
+    /** The free workspaces of every thread */
+    private static final ThreadLocal<ArrayDeque<EvaluationWorkspace>> FREE =
+            ThreadLocal.withInitial(ArrayDeque::new);
+
+    /** The solving board */
+    final int[][] board;
+
+    /** The options of every cell and their grades */
+    final Hashtable<Integer, Double>[][] gradeboard;
+
+    /** The player that used the workspace last, null if no one */
+    private BoardIndividual owner;
+
+    /** The amount of the numbers that the owner placed when he released the workspace */
+    private int ownerMoves;
+
+
+    /**
+     * Create a workspace for boards with the gaven dimensions.
+     * @param dimensions is the board dimensions.
+     */
+    @SuppressWarnings("unchecked")
+    private EvaluationWorkspace(int dimensions) {
+        board = new int[dimensions][dimensions];
+        gradeboard = new Hashtable[dimensions][dimensions];
+        for (int i = 0; i < dimensions; i++)
+            for (int j = 0; j < dimensions; j++)
+                gradeboard[i][j] = new Hashtable<>();
+    }
+
+
+    /**
+     * Borrow a free workspace of the current thread for boards with the gaven dimensions,
+     * we prefer the workspace that the player used last. If there is no free workspace we create a new one.
+     * @param player is the player that want to play.
+     * @param dimensions is the board dimensions.
+     * @return a workspace that only the current thread use, until we {@link #release(BoardIndividual, int) release} it.
+     */
+    static EvaluationWorkspace acquire(BoardIndividual player, int dimensions) {
+        ArrayDeque<EvaluationWorkspace> free = FREE.get();
+        EvaluationWorkspace chosen = null;
+        for (EvaluationWorkspace workspace : free) {
+            if (workspace.board.length == dimensions && (chosen == null || workspace.owner == player))
+                chosen = workspace;
+        }
+        if (chosen == null)
+            return new EvaluationWorkspace(dimensions);
+        free.remove(chosen);
+        return chosen;
+    }
+
+
+    /**
+     * Return the workspace to the free workspaces of the current thread,
+     * it remember the player and the amount of the numbers that he placed.
+     * @param player is the player that used the workspace.
+     * @param moves is the amount of the numbers that the player placed.
+     */
+    void release(BoardIndividual player, int moves) {
+        owner = player;
+        ownerMoves = moves;
+        FREE.get().push(this);
+    }
+
+
+    /**
+     * Check if the workspace already hold the state of the player after the gaven amount of numbers.
+     * The play is deterministic, so the same player after the same amount of numbers is in the same state.
+     * @param player is the player that want to continue to play.
+     * @param moves is the amount of the numbers that the player placed.
+     * @return true if we don't need to restore the state of the player.
+     */
+    boolean holds(BoardIndividual player, int moves) {
+        return owner == player && ownerMoves == moves;
+    }
+}
@@ -1,7 +1,10 @@
 package sudokuGame;
 
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 
 /**
@@ -41,6 +44,49 @@ public class Evolution {
     private CSV_Writer reportGenerator;
 
 
+    /** Save the population while we evolve, null mean that we don't save checkpoints */
+    private final PopulationCheckpoint checkpoint;
+
+
+    /** We save a checkpoint every checkpointInterval generations */
+    private final int checkpointInterval;
+
+
+    /** The generation number that we start from, it's not 0 if we resumed from a checkpoint */
+    private final int startGeneration;
+
+
+    /** Decide when we are stuck in a plateau and should restart, null mean no restarts */
+    private final StagnationPolicy stagnation;
+
+
+    /** The local search on the best individuals after every generation, null mean no local search */
+    private MemeticSearch memetic;
+
+
+    /**
+     * The best individuals of all the runs that share it, we offer it every generation and stop
+     * when another run solved the board, null mean no hall of fame.
+     */
+    private HallOfFame hallOfFame;
+
+
+    /** The name of the report file, null mean the creation time (CurrentTime.csv) */
+    private String reportName;
+
+
+    /** Print the best individual of every generation and the result, false for many runs together */
+    private boolean verbose = true;
+
+
+    /** Write the report file, false when the file is NOT needed (like the runs of a benchmark) */
+    private boolean reporting = true;
+
+
+    /** The last generation that we played, -1 until we evolve */
+    private int lastGeneration = -1;
+
+
     /**
      * Initialize the fields of the instance, and determine the max
      * attempts to generate new generations that trying to solve
@@ -51,8 +97,92 @@ public class Evolution {
      *                       to solve the sudoku board
      */
 	public Evolution(Population population, int maxGenerations) {
+		this(population, maxGenerations, null, 0, 0, null);
+	}
+
+
+    /**
+     * Initialize the fields of the instance, and determine the max
+     * attempts to generate new generations, and save the population
+     * into a {@link PopulationCheckpoint checkpoint} every checkpointInterval generations.
+     * @param population represent the collection of players (individuals) that trying to solve
+     *                   the sudoku board, this instance can generate the next generation
+     * @param maxGenerations is the max allowed attempts to create new generations that will try
+     *                       to solve the sudoku board
+     * @param checkpoint is the checkpoint that we save the population into, null mean no checkpoints
+     * @param checkpointInterval we save a checkpoint every checkpointInterval generations
+     * @param startGeneration is the generation number of the population, it's not 0 if the population
+     *                        restored from a checkpoint
+     * @param stagnation decide when we are stuck in a plateau and should restart a part of the population,
+     *                   null mean no restarts
+     * @throws RuntimeException if we have a checkpoint and the checkpoint interval is less than 1.
+     */
+	public Evolution(Population population, int maxGenerations, PopulationCheckpoint checkpoint,
+					 int checkpointInterval, int startGeneration, StagnationPolicy stagnation) {
+		if (checkpoint != null && checkpointInterval < 1)
+			throw new RuntimeException("Checkpoint interval must be at least 1 generation");
 		this.population = population;
 		this.maxGenerations = maxGenerations;
+		this.checkpoint = checkpoint;
+		this.checkpointInterval = checkpointInterval;
+		this.startGeneration = startGeneration;
+		this.stagnation = stagnation;
+	}
+
+
+    /**
+     * Set the local search that try to improve the best individuals after every generation.
+     * @param memetic is the local search, null mean no local search.
+     */
+	public void setMemeticSearch(MemeticSearch memetic) {
+		this.memetic = memetic;
+	}
+
+
+    /**
+     * Set the hall of fame that we offer the individuals of every generation, it can be shared with other runs,
+     * and if one of them solved the board we stop.
+     * @param hallOfFame is the shared hall of fame, null mean no hall of fame.
+     */
+	public void setHallOfFame(HallOfFame hallOfFame) {
+		this.hallOfFame = hallOfFame;
+	}
+
+
+    /**
+     * Set the name of the report file, several runs that start in the same second need different names.
+     * @param reportName is the name of the report file in the reports directory, null mean the creation time.
+     */
+	public void setReportName(String reportName) {
+		this.reportName = reportName;
+	}
+
+
+    /**
+     * Decide if we print the progress, when we run many evolutions together only the report files are useful.
+     * @param verbose is true for printing the best individual of every generation and the result.
+     */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+
+    /**
+     * Decide if we write the report file, a benchmark turn it off so the disk isn't part of the measured time.
+     * @param reporting is true for writing the report file into the reports directory.
+     */
+	public void setReporting(boolean reporting) {
+		this.reporting = reporting;
+	}
+
+
+    /**
+     * Get the last generation that we played, the generation that we solved the board in,
+     * or the last generation if we didn't solve it.
+     * @return the last generation number, -1 if we didn't evolve yet.
+     */
+	public int getLastGeneration() {
+		return lastGeneration;
 	}
 
 
@@ -91,31 +221,73 @@ public class Evolution {
      * then we generate a better new generation, and repeat the search...etc
      * We repeat this operations until we reach the {@link #maxGenerations max}
      * allowed attempts, and then quit anyway, since we can't run forever.
+     * If we have a {@link #checkpoint checkpoint}, we save the population every
+     * {@link #checkpointInterval checkpointInterval} generations, (NOT in the generation
+     * that we resumed from, so the resumed evolution continue exactly like the saved one).
+     * If we have a {@link #stagnation stagnation policy}, we restart a part of the population when we stuck
+     * in a plateau, instead of generating the next generation.
+     * If we have a {@link #memetic local search}, we try to improve the best individuals of every new generation.
+     * If we have a {@link #hallOfFame hall of fame}, we offer it every generation, and we stop when
+     * it has an ideal individual (another run that share it solved the board).
+     * If we are NOT {@link #verbose verbose}, we only write the report, and only if we are
+     * {@link #reporting reporting}.
+     * In the end we save the best individuals into the library of the population, if it has one.
      */
 	public void evolve() {
 		int gen;
-		createReportFile();
-		for (gen = 0;  gen < maxGenerations;  ++gen) {
-			writeGenerationData(gen);
-			System.out.println("Generation " + gen + ": \n" + getBest());
-			System.out.println("\n");
+		if (reporting)
+			createReportFile();
+		for (gen = startGeneration;  gen < maxGenerations;  ++gen) {
+			if (reporting)
+				writeGenerationData(gen);
+			lastGeneration = gen;
+			if (verbose) {
+				System.out.println("Generation " + gen + ": \n" + getBest());
+				System.out.println("\n");
+			}
+			if (hallOfFame != null)
+				hallOfFame.offerAll(population.individuals);
 			
 			if (getBest().isIdeal())
 				break;
+			if (hallOfFame != null && hallOfFame.isSolved()) {
+				if (verbose)
+					System.out.println("Another run solved the board, stop in generation " + gen + "\n");
+				break;
+			}
 
-			population.nextGeneration();
+			if (checkpoint != null && gen > startGeneration && gen % checkpointInterval == 0)
+				checkpoint.save(population, gen);
+
+			if (stagnation != null && stagnation.shouldRestart(getBest().getFitness(),
+					population.getAvgPopulationFitness())) {
+				if (verbose)
+					System.out.println("Plateau detected in generation " + gen + ", restart the population\n");
+				population.restart(stagnation.getKeepFraction());
+			}
+			else
+				population.nextGeneration();
+			if (memetic != null)
+				memetic.improve(population);
 		}
+		if (checkpoint != null)
+			checkpoint.close();
+		if (hallOfFame != null)
+			hallOfFame.offerAll(population.individuals);
+		population.saveBestToLibrary();
 
-		if (gen == maxGenerations)
-			System.out.println("Best attempt: \n" + getBest());
-		else
+		if (!verbose)
+			return;
+		if (getBest().isIdeal())
 			System.out.println("Solution: \n" + getBest());
+		else
+			System.out.println("Best attempt: \n" + getBest());
 		
 	}
 
 
     /**
-     * Create a report file with current time name (CurrentTime.csv),
+     * Create a report file with current time name (CurrentTime.csv) or the {@link #reportName report name},
      * and append to him the headers and some basic initial information
      * of the experiment parameters like:
      * Original Empty Cells, Population Size, Max Generations
@@ -123,8 +295,8 @@ public class Evolution {
      */
 	private void createReportFile(){
 
-		reportGenerator = new CSV_Writer(new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss")
-                .format(new Date()) + ".csv");
+		reportGenerator = new CSV_Writer(reportName != null ? reportName
+				: new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss").format(new Date()) + ".csv");
 		reportGenerator.createCsvFile();
 		reportGenerator.appendCsvFile(new String[]{"Experiment Parameters:"});
 		reportGenerator.appendCsvFile(new String[]{"Original Empty Cells:",
@@ -139,6 +311,9 @@ public class Evolution {
                 Double.toString(population.getMutationProb())});
 		reportGenerator.appendCsvFile(new String[]{"Percent of good individuals from population:",
                 Double.toString(population.getGoodPopulationPercent())});
+		if (population.getScreening() != null)
+			reportGenerator.appendCsvFile(new String[]{"Screen Fraction:",
+					Double.toString(population.getScreening().getScreenFraction())});
 		/* Just add a line separator */
 		reportGenerator.appendCsvFile(new String[]{""});
 
@@ -156,28 +331,70 @@ public class Evolution {
 		reportGenerator.appendCsvFile(new String[]{""});
 		/* Just add a line separator */
 		reportGenerator.appendCsvFile(new String[]{""});
-		reportGenerator.appendCsvFile(new String[]{"Generation","Worst Individual Fitness"
-                ,"Best Individual Fitness", "Average Fitness", "Best Individual Tree - Prefix"
-                ,"Best Individual Tree - Infix"});
+		List<String> headers = new ArrayList<>(Arrays.asList("Generation","Worst Individual Fitness"
+				,"Best Individual Fitness", "Average Fitness", "Best Individual Tree - Prefix"
+				,"Best Individual Tree - Infix", "Mutation Probability", "Crossover Probability", "Restarts"
+				,"Average Tree Size", "Average Simplified Tree Size"));
+		if (population.getScreening() != null)
+			headers.addAll(Arrays.asList("Full Evaluations", "Screened Only"
+					,"Screen Value Disagreement", "Screen Rank Disagreement", "Screen Mean Error"));
+		if (memetic != null)
+			headers.addAll(Arrays.asList("Local Search Evaluations", "Local Search Improvements"));
+		if (population.getScheduler() != null)
+			headers.addAll(Arrays.asList("Evaluation Threads", "Evaluation Wall Time (ms)", "Evaluation Utilization"));
+		reportGenerator.appendCsvFile(headers.toArray(new String[0]));
 	}
 
 
     /**
      * Append the current generation data into the report file:
      * generation number, best individual's fitness, best individual's fitness, average fitness,
-     * best individual's tree-based GP as infix and prefix expression.
+     * best individual's tree-based GP as infix and prefix expression, the current mutation and crossover
+     * probabilities (they can change with {@link AdaptiveSelection}), the amount of the restarts until now,
+     * the average tree size and the average size of the simplified trees that we run,
+     * and if we screen the individuals, the amount of the full evaluations and the disagreement of the screen,
+     * and if we use a local search, the evaluations and the improvements of the local search in the last generation,
+     * and if we play in parallel, the wall time of the plays and how much of the time the threads played.
      * @param gen is the generation number that we reach, and it's the row number that we append
      */
 	private void writeGenerationData(int gen){
-		reportGenerator.appendCsvFile(new String[]{
+		List<String> data = new ArrayList<>(Arrays.asList(
 				Integer.toString(gen),
 				Double.toString(getWorst().getFitness()),
 				Double.toString(getBest().getFitness()),
 				Double.toString(population.getAvgPopulationFitness()),
 				getBest().treeAsPrefixExpression(),
-				getBest().treeAsInfixExpression()
-				});
+				getBest().treeAsInfixExpression(),
+				Double.toString(population.getMutationProb()),
+				Double.toString(population.getCrossoverProb()),
+				Integer.toString(stagnation != null ? stagnation.getRestarts() : 0),
+				Double.toString(population.getAvgTreeSize()),
+				Double.toString(population.getAvgEvaluationTreeSize())
+				));
+		FitnessScreening screening = population.getScreening();
+		if (screening != null)
+			data.addAll(Arrays.asList(
+					Integer.toString(screening.getFullEvaluations()),
+					Integer.toString(screening.getSkipped()),
+					Double.toString(screening.getValueDisagreementRate()),
+					Double.toString(screening.getRankDisagreementRate()),
+					Double.toString(screening.getMeanAbsoluteError())
+					));
+		if (memetic != null)
+			data.addAll(Arrays.asList(
+					Integer.toString(memetic.getEvaluations()),
+					Integer.toString(memetic.getImprovements())
+					));
+		EvaluationScheduler scheduler = population.getScheduler();
+		if (scheduler != null)
+			data.addAll(Arrays.asList(
+					Integer.toString(scheduler.getThreads()),
+					Double.toString(scheduler.getWallMillis()),
+					Double.toString(scheduler.getUtilization())
+					));
+		reportGenerator.appendCsvFile(data.toArray(new String[0]));
 	}
 
+
 	
 }
\ No newline at end of file
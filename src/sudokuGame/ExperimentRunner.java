@@ -0,0 +1,532 @@
+package sudokuGame;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code ExperimentRunner} run a sweep of experiments: every combination of the parameters in the grid
+ * (population sizes, mutation and crossover probabilities, tree heights, boards, primitive sets and terminal sets)
+ * is a setting, and every setting is evolved {@link #repeats repeats} times. The runs are executed together
+ * on a pool of threads, every run is a whole {@link Evolution} in one thread, so the sweep take about the total time
+ * divided by the amount of the cores.
+ *
+ * <p>Every run write its own report file (the setting name and the repeat number), and in the end we aggregate
+ * the runs of every setting into one summary (printed and written as a report): the success rate, and the
+ * distributions of the generations and the wall time (mean, median, 90th percentile and max).
+ *
+ * <p>The repeat number k of every setting use the seed + k, so all the settings play the same random streams
+ * (and the same boards), and the differences between the settings are caused by the parameters and NOT by luck.
+ * A run is repeatable by its seed, no matter how many threads run the sweep.
+ *
+ * <p>The primitive set and the terminal set are static in {@link Individual}
+ * ({@link Individual#fillOperators(ArrayList)} and {@link Individual#fillFunctions(ArrayList)}), so the runs
+ * with the same sets run together, and we change the sets only between these groups. The original sets
+ * are restored in the end of the sweep.
+ * @see Evolution
+ * @see Driver
+ */
+public class ExperimentRunner {
+
+    /** The path of the file that contain the sudoku boards */
+    private final String filePath;
+
+    /** The dimensions of the boards */
+    private final int sudokuDimensions;
+
+    /** The max generations of every run */
+    private final int maxGenerations;
+
+    /** The amount of the runs of every setting */
+    private final int repeats;
+
+    /** The amount of the runs that we execute together */
+    private final int threads;
+
+    /** The seed of the first repeat, the repeat k use the seed + k */
+    private long seed = 1;
+
+    /** Percent of what we consider as a good individuals, the same in all the settings */
+    private double goodPopulationPercent = 0.4;
+
+    /** Max tree height after mutation or crossover, the same in all the settings, 0 mean no limit */
+    private int maxTreeHeight;
+
+    /** The population sizes of the grid */
+    private int[] populationSizes = {100};
+
+    /** The mutation probabilities of the grid */
+    private double[] mutationProbs = {0.3};
+
+    /** The crossover probabilities of the grid */
+    private double[] crossoverProbs = {0.7};
+
+    /** The tree heights of the grid */
+    private int[] heights = {5};
+
+    /** The indices of the boards (in the file) of the grid */
+    private int[] boards = {0};
+
+    /** The primitive sets of the grid by their names, empty mean only the current set */
+    private final Map<String, ArrayList<String>> primitiveSets = new LinkedHashMap<>();
+
+    /** The terminal sets of the grid by their names, empty mean only the current set */
+    private final Map<String, ArrayList<String>> terminalSets = new LinkedHashMap<>();
+
+
+    /**
+     * One combination of the parameters of the grid.
+     */
+    private static class Setting {
+        /** The amount of the individuals in the population */
+        final int populationSize;
+        /** The probability to apply mutation */
+        final double mutationProb;
+        /** The probability to apply crossover */
+        final double crossoverProb;
+        /** The height of the trees in the first generation */
+        final int height;
+        /** The index of the board in the file */
+        final int board;
+        /** The name of the primitive set */
+        final String primitiveSet;
+        /** The name of the terminal set */
+        final String terminalSet;
+
+        Setting(int populationSize, double mutationProb, double crossoverProb, int height, int board,
+                String primitiveSet, String terminalSet) {
+            this.populationSize = populationSize;
+            this.mutationProb = mutationProb;
+            this.crossoverProb = crossoverProb;
+            this.height = height;
+            this.board = board;
+            this.primitiveSet = primitiveSet;
+            this.terminalSet = terminalSet;
+        }
+
+        /**
+         * The name of the setting, we use it in the report file names, so it has no spaces.
+         */
+        String name() {
+            return "pop" + populationSize + "_mut" + mutationProb + "_cross" + crossoverProb + "_h" + height
+                    + "_board" + board + "_" + primitiveSet + "_" + terminalSet;
+        }
+    }
+
+
+    /**
+     * The result of one run.
+     */
+    private static class Result {
+        /** True if the run solved the board */
+        final boolean solved;
+        /** The amount of the generations that the run played */
+        final int generations;
+        /** The fitness of the best individual in the end of the run */
+        final int bestFitness;
+        /** The wall time of the run, in milliseconds */
+        final double millis;
+
+        Result(boolean solved, int generations, int bestFitness, double millis) {
+            this.solved = solved;
+            this.generations = generations;
+            this.bestFitness = bestFitness;
+            this.millis = millis;
+        }
+    }
+
+
+    /**
+     * Initialize the runner with a grid of one setting (the defaults of {@link Driver}),
+     * use the setters to extend the grid.
+     * @param filePath is the path of the file that contain the sudoku boards.
+     * @param sudokuDimensions is the dimensions of the boards.
+     * @param maxGenerations is the max generations of every run.
+     * @param repeats is the amount of the runs of every setting.
+     * @param threads is the amount of the runs that we execute together.
+     * @throws RuntimeException if the repeats or the threads are less than 1.
+     */
+    public ExperimentRunner(String filePath, int sudokuDimensions, int maxGenerations, int repeats, int threads) {
+        if (repeats < 1 || threads < 1)
+            throw new RuntimeException("The repeats and the threads of the experiments must be at least 1");
+        this.filePath = filePath;
+        this.sudokuDimensions = sudokuDimensions;
+        this.maxGenerations = maxGenerations;
+        this.repeats = repeats;
+        this.threads = threads;
+    }
+
+
+    /**
+     * Set the seed of the first repeat, the repeat k of every setting use the seed + k.
+     * @param seed is the seed of the first repeat.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+
+    /**
+     * Set the percent of the good individuals, and the max tree height, of all the settings.
+     * @param goodPopulationPercent is the percent of what we consider as a good individuals.
+     * @param maxTreeHeight is the max tree height after mutation or crossover, 0 mean no limit.
+     */
+    public void setFixedParameters(double goodPopulationPercent, int maxTreeHeight) {
+        this.goodPopulationPercent = goodPopulationPercent;
+        this.maxTreeHeight = maxTreeHeight;
+    }
+
+
+    /**
+     * Set the population sizes of the grid.
+     * @param populationSizes is the population sizes.
+     */
+    public void setPopulationSizes(int... populationSizes) {
+        this.populationSizes = populationSizes.clone();
+    }
+
+
+    /**
+     * Set the mutation probabilities of the grid.
+     * @param mutationProbs is the mutation probabilities.
+     */
+    public void setMutationProbs(double... mutationProbs) {
+        this.mutationProbs = mutationProbs.clone();
+    }
+
+
+    /**
+     * Set the crossover probabilities of the grid.
+     * @param crossoverProbs is the crossover probabilities.
+     */
+    public void setCrossoverProbs(double... crossoverProbs) {
+        this.crossoverProbs = crossoverProbs.clone();
+    }
+
+
+    /**
+     * Set the tree heights of the grid.
+     * @param heights is the heights of the trees in the first generation.
+     */
+    public void setHeights(int... heights) {
+        this.heights = heights.clone();
+    }
+
+
+    /**
+     * Set the boards of the grid.
+     * @param boards is the indices of the boards in the file, start from 0.
+     */
+    public void setBoards(int... boards) {
+        this.boards = boards.clone();
+    }
+
+
+    /**
+     * Add a primitive set to the grid, if we don't add any set, all the settings use the current set.
+     * @param name is the name of the set in the reports, without spaces.
+     * @param operators is the operator names of the set, see {@link Individual#fillOperators(ArrayList)}.
+     */
+    public void addPrimitiveSet(String name, List<String> operators) {
+        primitiveSets.put(name, new ArrayList<>(operators));
+    }
+
+
+    /**
+     * Add a terminal set to the grid, if we don't add any set, all the settings use the current set.
+     * @param name is the name of the set in the reports, without spaces.
+     * @param functions is the function names of the set, see {@link Individual#fillFunctions(ArrayList)}.
+     */
+    public void addTerminalSet(String name, List<String> functions) {
+        terminalSets.put(name, new ArrayList<>(functions));
+    }
+
+
+    /**
+     * Run all the settings of the grid, {@link #repeats repeats} times each, and aggregate the results.
+     * The runs with the same primitive and terminal sets run together on the pool of threads.
+     * @return the summary of every setting, in the order of the grid, one line for each.
+     * @throws RuntimeException if one of the runs failed, or if we were interrupted while waiting.
+     */
+    public List<String> run() {
+        final ArrayList<String> originalOperators = new ArrayList<>(Individual.operators);
+        final ArrayList<String> originalFunctions = new ArrayList<>(Individual.functions);
+        Map<String, ArrayList<String>> primitives = primitiveSets.isEmpty() ?
+                singleSet("all", originalOperators) : primitiveSets;
+        Map<String, ArrayList<String>> terminals = terminalSets.isEmpty() ?
+                singleSet("all", originalFunctions) : terminalSets;
+        final Map<Integer, int[][]> loadedBoards = loadBoards();
+        final String sweepName = new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss").format(new Date());
+
+        final int totalRuns = populationSizes.length * mutationProbs.length * crossoverProbs.length * heights.length
+                * boards.length * primitives.size() * terminals.size() * repeats;
+        final AtomicInteger finished = new AtomicInteger();
+        final AtomicInteger counter = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread worker = new Thread(task, "experiment-worker-" + counter.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        });
+        List<String> summary = new ArrayList<>();
+        CSV_Writer report = new CSV_Writer(sweepName + "_summary.csv");
+        report.createCsvFile();
+        report.appendCsvFile(new String[]{"Max Generations:", Integer.toString(maxGenerations)});
+        report.appendCsvFile(new String[]{"Repeats:", Integer.toString(repeats)});
+        report.appendCsvFile(new String[]{"First Seed:", Long.toString(seed)});
+        report.appendCsvFile(new String[]{""});
+        report.appendCsvFile(new String[]{"Setting", "Success Rate", "Average Best Fitness"
+                , "Generations Mean", "Generations Median", "Generations 90th Percentile", "Generations Max"
+                , "Wall Time Mean (ms)", "Wall Time Median (ms)", "Wall Time 90th Percentile (ms)"
+                , "Wall Time Max (ms)"});
+        final long start = System.nanoTime();
+        try {
+            for (Map.Entry<String, ArrayList<String>> primitiveSet : primitives.entrySet()) {
+                for (Map.Entry<String, ArrayList<String>> terminalSet : terminals.entrySet()) {
+                    /* All the runs of the previous group finished, so we can change the static sets */
+                    Individual.fillOperators(primitiveSet.getValue());
+                    Individual.fillFunctions(terminalSet.getValue());
+                    List<Setting> settings = buildSettings(primitiveSet.getKey(), terminalSet.getKey());
+                    List<List<Future<Result>>> futures = new ArrayList<>(settings.size());
+                    for (final Setting setting : settings) {
+                        List<Future<Result>> runs = new ArrayList<>(repeats);
+                        for (int k = 0; k < repeats; k++) {
+                            final int repeat = k;
+                            runs.add(pool.submit(() -> {
+                                Result result = runOnce(setting, repeat, loadedBoards.get(setting.board), sweepName);
+                                System.out.println("Run " + finished.incrementAndGet() + "/" + totalRuns + ": "
+                                        + setting.name() + " repeat " + repeat + (result.solved ? " solved in "
+                                        : " NOT solved in ") + result.generations + " generations");
+                                return result;
+                            }));
+                        }
+                        futures.add(runs);
+                    }
+                    for (int i = 0; i < settings.size(); i++) {
+                        Result[] results = new Result[repeats];
+                        for (int k = 0; k < repeats; k++)
+                            results[k] = futures.get(i).get(k).get();
+                        String[] line = aggregate(settings.get(i), results);
+                        report.appendCsvFile(line);
+                        summary.add(String.join(", ", line));
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the experiments", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("One of the experiments failed", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+            Individual.fillOperators(originalOperators);
+            Individual.fillFunctions(originalFunctions);
+        }
+        report.appendCsvFile(new String[]{""});
+        report.appendCsvFile(new String[]{"Sweep Wall Time (s):", Double.toString((System.nanoTime() - start) / 1e9)});
+        return summary;
+    }
+
+
+    /**
+     * Create a map with one set.
+     * @param name is the name of the set.
+     * @param names is the operator or function names of the set.
+     * @return map with the set.
+     */
+    private static Map<String, ArrayList<String>> singleSet(String name, ArrayList<String> names) {
+        Map<String, ArrayList<String>> sets = new LinkedHashMap<>();
+        sets.put(name, names);
+        return sets;
+    }
+
+
+    /**
+     * Load all the boards of the grid, before the runs, a run get his own copy.
+     * @return the boards by their indices.
+     */
+    private Map<Integer, int[][]> loadBoards() {
+        SudokuFileUtil fileUtil = new SudokuFileUtil(filePath, sudokuDimensions);
+        Map<Integer, int[][]> loaded = new LinkedHashMap<>();
+        for (int board : boards) {
+            int[][] loadedBoard = fileUtil.loadSudoku(board);
+            int[][] copy = new int[loadedBoard.length][];
+            for (int i = 0; i < copy.length; i++)
+                copy[i] = loadedBoard[i].clone();
+            loaded.put(board, copy);
+        }
+        return loaded;
+    }
+
+
+    /**
+     * Build all the combinations of the grid for the gaven primitive set and terminal set.
+     * @param primitiveSet is the name of the primitive set.
+     * @param terminalSet is the name of the terminal set.
+     * @return the settings, in the order of the grid.
+     */
+    private List<Setting> buildSettings(String primitiveSet, String terminalSet) {
+        List<Setting> settings = new ArrayList<>();
+        for (int populationSize : populationSizes)
+            for (double mutationProb : mutationProbs)
+                for (double crossoverProb : crossoverProbs)
+                    for (int height : heights)
+                        for (int board : boards)
+                            settings.add(new Setting(populationSize, mutationProb, crossoverProb, height, board,
+                                    primitiveSet, terminalSet));
+        return settings;
+    }
+
+
+    /**
+     * Evolve one run of the setting, in the calling thread and without printing, only the report is written.
+     * @param setting is the parameters of the run.
+     * @param repeat is the repeat number, the run use the seed + repeat.
+     * @param board is the board of the setting, we copy it.
+     * @param sweepName is the prefix of the report name.
+     * @return the result of the run.
+     */
+    private Result runOnce(Setting setting, int repeat, int[][] board, String sweepName) {
+        final long start = System.nanoTime();
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < copy.length; i++)
+            copy[i] = board[i].clone();
+        SplittableRandom random = new SplittableRandom(seed + repeat);
+        BoardIndividual prototype = new BoardIndividual(setting.height, copy, random.split());
+        prototype.setTreeLimits(maxTreeHeight, 0);
+        /* The runs already use all the cores, so every run play in his own thread */
+        prototype.setParallelThresholds(0, 0);
+        TournamentSelection select = new TournamentSelection(setting.mutationProb, setting.crossoverProb,
+                goodPopulationPercent);
+        Population population = new Population(setting.populationSize, prototype, select, null, null, 0,
+                random.split(), null);
+        Evolution evolution = new Evolution(population, maxGenerations);
+        evolution.setVerbose(false);
+        evolution.setReportName(sweepName + "_" + setting.name() + "_run" + repeat + ".csv");
+        evolution.evolve();
+        Individual best = population.getBest();
+        return new Result(best.isIdeal(), evolution.getLastGeneration() + 1, best.getFitness(),
+                (System.nanoTime() - start) / 1e6);
+    }
+
+
+    /**
+     * Aggregate the runs of one setting.
+     * @param setting is the setting.
+     * @param results is the results of all the repeats of the setting.
+     * @return the summary line: the setting name, the success rate, the average best fitness,
+     * and the mean, median, 90th percentile and max of the generations and of the wall time.
+     */
+    private static String[] aggregate(Setting setting, Result[] results) {
+        double[] generations = new double[results.length];
+        double[] millis = new double[results.length];
+        int solved = 0;
+        double fitness = 0;
+        for (int i = 0; i < results.length; i++) {
+            generations[i] = results[i].generations;
+            millis[i] = results[i].millis;
+            fitness += results[i].bestFitness;
+            if (results[i].solved)
+                solved++;
+        }
+        Arrays.sort(generations);
+        Arrays.sort(millis);
+        return new String[]{setting.name(),
+                Double.toString((double) solved / results.length),
+                Double.toString(fitness / results.length),
+                Double.toString(mean(generations)), Double.toString(percentile(generations, 0.5)),
+                Double.toString(percentile(generations, 0.9)), Double.toString(generations[generations.length - 1]),
+                Double.toString(mean(millis)), Double.toString(percentile(millis, 0.5)),
+                Double.toString(percentile(millis, 0.9)), Double.toString(millis[millis.length - 1])};
+    }
+
+
+    /**
+     * Compute the mean of the values.
+     * @param values is the values.
+     * @return the mean.
+     */
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values)
+            sum += value;
+        return sum / values.length;
+    }
+
+
+    /**
+     * Compute a percentile of sorted values, the nearest rank (the smallest value that at least the gaven
+     * fraction of the values are less or equal to it).
+     * @param sorted is the values, ascending.
+     * @param fraction is the percentile between 0 and 1, 0.5 for the median.
+     * @return the percentile.
+     */
+    static double percentile(double[] sorted, double fraction) {
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))];
+    }
+
+
+    /**
+     * Run a sweep with the settings below, like the experiments in the experiments directory
+     * (regular, without mutation, without crossover, larger population, just plus primitive, less terminals).
+     * @param args are NOT used.
+     */
+    public static void main(String[] args) {
+
+        /* File path and sudoku dimensions of the boards*/
+        String filePath = "boards/realBoards.txt";
+        int sudokuDimensions = 9;
+
+        /* Boards, the indices of the boards in the file*/
+        int[] boards = {0};
+
+        /* Max generations of every run, and the amount of the runs of every setting*/
+        int maxGenerations = 50;
+        int repeats = 10;
+
+        /* Threads, the amount of the runs that we execute together*/
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        /* Seed, the repeat k of every setting use the seed + k*/
+        long seed = 1;
+
+        /* The grid, every combination is a setting*/
+        int[] populationSizes = {100, 200};
+        double[] mutationProbs = {0.2, 0};
+        double[] crossoverProbs = {0.8, 0};
+        int[] heights = {5};
+
+        /* Percent of good population and max tree height, the same in all the settings*/
+        double goodPopulationPercent = 0.5;
+        int maxTreeHeight = 0;
+
+        ExperimentRunner runner = new ExperimentRunner(filePath, sudokuDimensions, maxGenerations, repeats, threads);
+        runner.setSeed(seed);
+        runner.setFixedParameters(goodPopulationPercent, maxTreeHeight);
+        runner.setPopulationSizes(populationSizes);
+        runner.setMutationProbs(mutationProbs);
+        runner.setCrossoverProbs(crossoverProbs);
+        runner.setHeights(heights);
+        runner.setBoards(boards);
+        runner.addPrimitiveSet("allPrimitives", Individual.operators);
+        runner.addPrimitiveSet("justPlus", Arrays.asList("Plus"));
+        runner.addTerminalSet("allTerminals", Individual.functions);
+        runner.addTerminalSet("lessTerminals", Arrays.asList("numOfOptionsInCell", "numOfOptionsToAppearInBoard",
+                "countEmptyCellInRow", "countEmptyCellInCol", "countEmptyCellInSquare"));
+        for (String line : runner.run())
+            System.out.println(line);
+    }
+}
@@ -0,0 +1,334 @@
+package sudokuGame;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code FitnessScreening} is a cheap screen of the players (individuals) before we let them
+ * play the whole sudoku board, the full {@link BoardIndividual#play() play} can take up to
+ * N<sup>2</sup> passes on the gradeboard, and most of the players are NOT good enough to be
+ * one of the good individuals that we matting with them.
+ *
+ * <p>First every player plays only the first {@link #screenFraction screenFraction} of the empty cells
+ * (truncated play). A player that got stuck before that already has his exact fitness.
+ * For the other players we know two bounds: the fitness can NOT be more than the empty cells that
+ * remain after the truncated play, and can NOT be less than the
+ * {@link BoardIndividual#findFitnessLowerBound() lower bound} that we find from the dead cells,
+ * since a dead cell stays empty until the end.
+ * We continue the play (full fitness) in order of the lower bound, only for the players that might be
+ * one of the {@link #eliteFraction elite} (lower bound less than the elite cutoff, so a player that
+ * might be ideal always continue until the elite is full of ideal players), and the rest get the
+ * upper bound as fitness, their real fitness is NOT less than the elite cutoff, so the elite individuals
+ * are exactly the same as with full evaluation of everyone.
+ * It's true only for the truncation selection (we mate with the elite), a tournament would compare the upper bounds
+ * directly, so the {@link Driver} doesn't allow the screening with a tournament.
+ * The upper bound is marked as NOT exact ({@link Individual#isFitnessExact()}), so it's used only for ranking:
+ * it's NOT reported, rewarded or saved, and a player that survive into the next generation with it is screened again.
+ *
+ * <p>To see how much the screen disagrees with the full fitness, we fully evaluate one of every
+ * {@link #auditInterval auditInterval} skipped players and count how often the upper bound
+ * was wrong, and how often the real fitness could enter the elite (should NOT happen).
+ * @see BoardIndividual#playPlacements(int)
+ * @see Population
+ */
+public class FitnessScreening {
+
+    /** The percent of the empty cells that every player play in the screen (truncated play) */
+    private final double screenFraction;
+
+    /** The percent of the population that must get an exact fitness (the good individuals) */
+    private final double eliteFraction;
+
+    /** We fully evaluate one of every auditInterval skipped players, 0 mean no audit */
+    private final int auditInterval;
+
+    /** The amount of the players that played the screen in the last generation */
+    private int screened;
+
+    /** The amount of the players that got exact fitness already in the screen, in the last generation */
+    private int exactInScreen;
+
+    /** The amount of the players that we continued to the full play, in the last generation */
+    private int promoted;
+
+    /** The amount of the players that got the upper bound as fitness, in the last generation */
+    private int skipped;
+
+    /** The total amount of the audited players (skipped players that we fully evaluated anyway) */
+    private long audited;
+
+    /** The total amount of the audited players that their real fitness is NOT the upper bound */
+    private long valueDisagreements;
+
+    /** The total amount of the audited players that their real fitness could enter the elite */
+    private long rankDisagreements;
+
+    /** Sum of the deference between the upper bound and the real fitness of the audited players */
+    private long sumAbsoluteError;
+
+    /** Counter of the skipped players, so we know which one to audit */
+    private long skippedCounter;
+
+
+    /**
+     * Initialize the screening parameters.
+     * @param screenFraction is the percent of the empty cells that every player play in the screen,
+     *                       must be between 0 (exclusive) and 1 (inclusive).
+     * @param eliteFraction is the percent of the population that must get an exact fitness,
+     *                      usually it's the same as the good population percent in {@link Selection}.
+     * @param auditInterval we fully evaluate one of every auditInterval skipped players to
+     *                      measure the disagreement of the screen, 0 mean no audit.
+     * @throws RuntimeException if the fractions are NOT in range (0,1].
+     */
+    public FitnessScreening(double screenFraction, double eliteFraction, int auditInterval) {
+        if (screenFraction <= 0 || screenFraction > 1 || eliteFraction <= 0 || eliteFraction > 1)
+            throw new RuntimeException("Screen fraction and elite fraction must be in range (0,1]");
+        this.screenFraction = screenFraction;
+        this.eliteFraction = eliteFraction;
+        this.auditInterval = auditInterval;
+    }
+
+
+    /**
+     * Evaluate the fitness of all the players (individuals) that did NOT play yet,
+     * with the screen first, and then with full play only for the players that
+     * might be in the elite.
+     * After this method every individual has a fitness, exact or upper bound (NOT exact).
+     * An individual that has only an upper bound from the last generation is screened again.
+     *
+     * <p>The truncated plays, the continued plays and the audits run in the gaven scheduler, so they
+     * are parallel. We continue the plays in waves: while the elite isn't full, the next players
+     * that fill it (by the order of the lower bound), and after that all the players that their lower bound
+     * is less than the current cutoff. A wave may continue a few players that the cutoff of the players
+     * before them in the same wave would skip, they only get an exact fitness. The waves depend only on the
+     * fitness and NOT on the timing, so the result is the same for any amount of threads.
+     * @param individuals is the collection of the players (population).
+     * @param scheduler run the plays in parallel, null mean in the calling thread.
+     */
+    void evaluate(Individual[] individuals, EvaluationScheduler scheduler) {
+        screened = exactInScreen = promoted = skipped = 0;
+
+        List<Individual> exact = new ArrayList<>();
+        List<BoardIndividual> players = new ArrayList<>();
+        for (Individual individual : individuals) {
+            if (individual.isEvaluated() && !individual.isFitnessExact())
+                individual.resetFitness();
+            if (individual.isEvaluated())
+                exact.add(individual);
+            else
+                players.add((BoardIndividual) individual);
+        }
+
+        /* The truncated play, and the bounds of the players that can still forward */
+        final boolean[] forward = new boolean[players.size()];
+        final int[] lowerBounds = new int[players.size()];
+        final int[] upperBounds = new int[players.size()];
+        run(players, (player, index) -> {
+            player.startPlay();
+            player.playPlacements((int) Math.ceil(player.countEmptyCellInOriginalSudoku() * screenFraction));
+            forward[index] = player.isForward();
+            if (forward[index]) {
+                lowerBounds[index] = player.findFitnessLowerBound();
+                upperBounds[index] = player.countEmptyCellInSudoku();
+            }
+            else {
+                /* The greedy play ended, the bounded search (if we use it) may still find a better state */
+                player.finishPlay();
+                player.setFitness(player.countEmptyCellInSudoku());
+                player.endPlay();
+            }
+            return player.getPlaySteps();
+        }, scheduler);
+        screened = players.size();
+
+        List<Integer> survivorIndices = new ArrayList<>();
+        for (int i = 0; i < players.size(); i++) {
+            if (forward[i])
+                survivorIndices.add(i);
+            else {
+                exact.add(players.get(i));
+                exactInScreen++;
+            }
+        }
+        survivorIndices.sort(Comparator.comparingInt(i -> lowerBounds[i]));
+
+        /* The fitness of the elite cutoff, among the individuals that we know their exact fitness */
+        final int eliteSize = Math.max(1, (int) Math.ceil(individuals.length * eliteFraction));
+        int[] eliteFitness = new int[eliteSize];
+        int known = 0;
+        for (Individual individual : exact)
+            known = insertElite(eliteFitness, known, individual.getFitness());
+
+        int next = 0;
+        while (next < survivorIndices.size()) {
+            int end = next;
+            if (known < eliteSize)
+                end = Math.min(survivorIndices.size(), next + eliteSize - known);
+            else {
+                while (end < survivorIndices.size() && lowerBounds[survivorIndices.get(end)] < eliteFitness[eliteSize - 1])
+                    end++;
+            }
+            if (end == next)
+                break;
+            List<BoardIndividual> wave = new ArrayList<>(end - next);
+            for (int k = next; k < end; k++)
+                wave.add(players.get(survivorIndices.get(k)));
+            run(wave, (player, index) -> {
+                final int before = player.getPlaySteps();
+                player.finishPlay();
+                player.setFitness(player.countEmptyCellInSudoku());
+                player.endPlay();
+                return player.getPlaySteps() - before;
+            }, scheduler);
+            for (BoardIndividual player : wave)
+                known = insertElite(eliteFitness, known, player.getFitness());
+            promoted += wave.size();
+            next = end;
+        }
+
+        /* The rest can NOT enter the elite, they get the upper bound, except the audited players */
+        final int cutoff = known < eliteSize ? Integer.MAX_VALUE : eliteFitness[eliteSize - 1];
+        List<BoardIndividual> audits = new ArrayList<>();
+        final List<Integer> auditBounds = new ArrayList<>();
+        for (int k = next; k < survivorIndices.size(); k++) {
+            final int index = survivorIndices.get(k);
+            BoardIndividual player = players.get(index);
+            skipped++;
+            if (auditInterval > 0 && ++skippedCounter % auditInterval == 0) {
+                audits.add(player);
+                auditBounds.add(upperBounds[index]);
+            }
+            else {
+                player.setFitnessUpperBound(upperBounds[index]);
+                player.endPlay();
+            }
+        }
+        run(audits, (player, index) -> {
+            final int before = player.getPlaySteps();
+            player.finishPlay();
+            player.setFitness(player.countEmptyCellInSudoku());
+            player.endPlay();
+            return player.getPlaySteps() - before;
+        }, scheduler);
+        for (int k = 0; k < audits.size(); k++) {
+            final int realFitness = audits.get(k).getFitness();
+            audited++;
+            sumAbsoluteError += auditBounds.get(k) - realFitness;
+            if (realFitness != auditBounds.get(k))
+                valueDisagreements++;
+            if (realFitness < cutoff)
+                rankDisagreements++;
+        }
+    }
+
+
+    /**
+     * Run the job of every player in the scheduler, or one after the other in the calling thread
+     * if we don't have a scheduler.
+     * @param players is the players.
+     * @param job is the work of one player.
+     * @param scheduler is the scheduler, null mean in the calling thread.
+     */
+    private static void run(List<BoardIndividual> players, EvaluationScheduler.Job job,
+                            EvaluationScheduler scheduler) {
+        if (scheduler != null)
+            scheduler.run(players, job);
+        else {
+            for (int i = 0; i < players.size(); i++)
+                job.play(players.get(i), i);
+        }
+    }
+
+
+    /**
+     * Insert the fitness into the sorted array of the elite fitness (ascending),
+     * and drop the worst one if the array is full.
+     * @param eliteFitness is the sorted array of the best known fitness.
+     * @param known is the amount of the fitness in the array.
+     * @param fitness is the fitness that we want to insert.
+     * @return the new amount of the fitness in the array.
+     */
+    private static int insertElite(int[] eliteFitness, int known, int fitness) {
+        if (known == eliteFitness.length) {
+            if (fitness >= eliteFitness[known - 1])
+                return known;
+            known--;
+        }
+        int i = known;
+        while (i > 0 && eliteFitness[i - 1] > fitness) {
+            eliteFitness[i] = eliteFitness[i - 1];
+            i--;
+        }
+        eliteFitness[i] = fitness;
+        return known + 1;
+    }
+
+
+    /**
+     * Returns the amount of the full evaluations in the last generation,
+     * the players that we continued to full play, and the players that got exact
+     * fitness in the screen (they played until they got stuck).
+     * @return the amount of the full evaluations in the last generation.
+     */
+    public int getFullEvaluations() {
+        return exactInScreen + promoted;
+    }
+
+
+    /**
+     * Returns the amount of the players that played only the screen in the last generation,
+     * and got the upper bound as fitness.
+     * @return the amount of the skipped players in the last generation.
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+
+    /**
+     * Returns the amount of the players that played the screen in the last generation.
+     * @return the amount of the screened players in the last generation.
+     */
+    public int getScreened() {
+        return screened;
+    }
+
+
+    /**
+     * Returns the percent of the audited players that their real fitness
+     * is NOT the upper bound that the screen gave them.
+     * @return the disagreement rate of the screen, 0 if we didn't audit yet.
+     */
+    public double getValueDisagreementRate() {
+        return audited == 0 ? 0 : valueDisagreements / (double) audited;
+    }
+
+
+    /**
+     * Returns the percent of the audited players that their real fitness could enter the elite,
+     * this should be always 0 since the lower bound of the skipped players is NOT less than the cutoff.
+     * @return the rank disagreement rate of the screen, 0 if we didn't audit yet.
+     */
+    public double getRankDisagreementRate() {
+        return audited == 0 ? 0 : rankDisagreements / (double) audited;
+    }
+
+
+    /**
+     * Returns the average deference between the upper bound and the real fitness of the audited players.
+     * @return the mean absolute error of the screen, 0 if we didn't audit yet.
+     */
+    public double getMeanAbsoluteError() {
+        return audited == 0 ? 0 : sumAbsoluteError / (double) audited;
+    }
+
+
+    /**
+     * Returns the percent of the empty cells that every player play in the screen.
+     * @return the screen fraction.
+     */
+    public double getScreenFraction() {
+        return screenFraction;
+    }
+}
@@ -0,0 +1,231 @@
+package sudokuGame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@code HallOfFame} keep the best individuals that were seen so far, by any population, any thread and any run
+ * that share the instance: the {@link #capacity capacity} best individuals sorted by their fitness, and then by
+ * their size (between individuals with the same fitness we prefer the cheaper one).
+ *
+ * <p>The hall is lock-free: the individuals are held in a sorted array that never change, and a new individual
+ * is added by building a new array and replacing the old one with compare-and-set, if another thread replaced it
+ * in the middle we try again with the new array. An individual that is NOT better than the last one in a full hall
+ * is rejected only by reading the array, so most of the offers cost almost nothing. The readers get the whole array
+ * at once, so they always see a consistent list.
+ *
+ * <p>We use it for reporting the best trees of several runs, for warm starts ({@link #seed(BoardIndividual, int)
+ * seed}), and to stop early: when one of the workers found an ideal individual, {@link #isSolved()} is true
+ * and the other workers can stop.
+ * The same tree (or genome) is kept only once, the first individual that brought it win.
+ * @see Evolution
+ * @see SteadyStateEvolution
+ */
+public class HallOfFame {
+
+    /** The max amount of the individuals in the hall */
+    private final int capacity;
+
+    /** The best individuals sorted from the best, we replace the whole array in every change */
+    private final AtomicReference<Entry[]> entries = new AtomicReference<>(new Entry[0]);
+
+    /** The amount of the individuals that were offered */
+    private final LongAdder offers = new LongAdder();
+
+    /** The amount of the individuals that entered the hall */
+    private final LongAdder accepted = new LongAdder();
+
+
+    /**
+     * One individual in the hall, with the keys that we sort by.
+     */
+    private static class Entry {
+        /** The individual, he is already evaluated and never change */
+        final Individual individual;
+        /** The fitness of the individual */
+        final int fitness;
+        /** The size of the tree (or the active genome) of the individual */
+        final int size;
+        /** The prefix expression of the tree, we use it to find the same tree again */
+        final String expression;
+
+        Entry(Individual individual, int fitness, int size, String expression) {
+            this.individual = individual;
+            this.fitness = fitness;
+            this.size = size;
+            this.expression = expression;
+        }
+
+        /**
+         * Check if an individual with the gaven fitness and size is better than this entry,
+         * an individual that is equal to the entry is NOT better (the older one stay before him).
+         */
+        boolean isWorseThan(int fitness, int size) {
+            return fitness < this.fitness || (fitness == this.fitness && size < this.size);
+        }
+    }
+
+
+    /**
+     * Initialize an empty hall.
+     * @param capacity is the max amount of the individuals in the hall.
+     * @throws RuntimeException if the capacity is less than 1.
+     */
+    public HallOfFame(int capacity) {
+        if (capacity < 1)
+            throw new RuntimeException("The capacity of the hall of fame must be at least 1");
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Offer an individual to the hall, it enter if the hall isn't full or if he is better than the last one,
+     * and his tree isn't in the hall already. It never block, several threads can offer together.
+     * An individual that has only an upper bound of his fitness (from the screen) is rejected.
+     * @param individual is the individual that we offer, he should be evaluated already (otherwise he play now).
+     * @return true if the individual entered the hall.
+     */
+    public boolean offer(Individual individual) {
+        offers.increment();
+        /* An upper bound of the screen isn't a fitness, the hall keep only exact fitness */
+        if (individual.isEvaluated() && !individual.isFitnessExact())
+            return false;
+        final int fitness = individual.getFitness();
+        final int size = individual.getSize();
+        String expression = null;
+        while (true) {
+            final Entry[] current = entries.get();
+            if (current.length == capacity && !current[capacity - 1].isWorseThan(fitness, size))
+                return false;
+            /* We build the expression only for the individuals that can enter, it's not cheap */
+            if (expression == null)
+                expression = individual.treeAsPrefixExpression();
+            int position = current.length;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].expression.equals(expression))
+                    return false;
+                if (position == current.length && current[i].isWorseThan(fitness, size))
+                    position = i;
+            }
+            Entry[] next = new Entry[Math.min(capacity, current.length + 1)];
+            System.arraycopy(current, 0, next, 0, position);
+            next[position] = new Entry(individual, fitness, size, expression);
+            System.arraycopy(current, position, next, position + 1, next.length - position - 1);
+            if (entries.compareAndSet(current, next)) {
+                accepted.increment();
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Offer all the individuals to the hall, see {@link #offer(Individual) offer}.
+     * @param individuals is the individuals that we offer, they should be evaluated already.
+     * @return the amount of the individuals that entered the hall.
+     */
+    public int offerAll(Individual[] individuals) {
+        int entered = 0;
+        for (Individual individual : individuals)
+            if (offer(individual))
+                entered++;
+        return entered;
+    }
+
+
+    /**
+     * Check if one of the individuals in the hall solved his board, the workers use it to stop early.
+     * @return true if the best individual in the hall is ideal.
+     */
+    public boolean isSolved() {
+        Entry[] current = entries.get();
+        return current.length > 0 && current[0].individual.isIdeal();
+    }
+
+
+    /**
+     * Get the best individual in the hall.
+     * @return the best individual, null if the hall is empty.
+     */
+    public Individual getBest() {
+        Entry[] current = entries.get();
+        return current.length > 0 ? current[0].individual : null;
+    }
+
+
+    /**
+     * Get all the individuals in the hall, from the best, as they were in one moment.
+     * @return unmodifiable list of the individuals.
+     */
+    public List<Individual> getTop() {
+        Entry[] current = entries.get();
+        List<Individual> top = new ArrayList<>(current.length);
+        for (Entry entry : current)
+            top.add(entry.individual);
+        return Collections.unmodifiableList(top);
+    }
+
+
+    /**
+     * Create new individuals from the best individuals in the hall for the board of the prototype, for a warm start.
+     * A tree is moved into a clone of the prototype (like the {@link TreeLibrary library} does), a Cartesian
+     * genome is used only for the same board and the same kind of individual.
+     * @param prototype is a prototype of the individuals, it hold the board that we want to solve.
+     * @param amount is the max amount of the individuals that we want.
+     * @return list of new individuals that didn't play yet, it could be less than amount (or empty).
+     */
+    public List<Individual> seed(BoardIndividual prototype, int amount) {
+        List<Individual> seeds = new ArrayList<>(amount);
+        for (Entry entry : entries.get()) {
+            if (seeds.size() >= amount)
+                break;
+            if (entry.individual instanceof CartesianIndividual || prototype instanceof CartesianIndividual) {
+                BoardIndividual player = (BoardIndividual) entry.individual;
+                if (player.getClass() == prototype.getClass()
+                        && Arrays.deepEquals(player.getOriginalSudoku(), prototype.getOriginalSudoku()))
+                    seeds.add(player.clone());
+                continue;
+            }
+            Individual individual = prototype.clone();
+            individual.tree = entry.individual.getTree();
+            individual.setHeight(entry.individual.getHeight());
+            seeds.add(individual);
+        }
+        return seeds;
+    }
+
+
+    /**
+     * Get the amount of the individuals that were offered to the hall.
+     * @return the amount of the offers.
+     */
+    public long getOffers() {
+        return offers.sum();
+    }
+
+
+    /**
+     * Get the amount of the individuals that entered the hall.
+     * @return the amount of the accepted offers.
+     */
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder st = new StringBuilder("Hall of fame: " + getOffers() + " offers, " + getAccepted()
+                + " accepted\n");
+        Entry[] current = entries.get();
+        for (int i = 0; i < current.length; i++)
+            st.append(i + 1).append(". fitness ").append(current[i].fitness).append(", size ")
+                    .append(current[i].size).append(": ").append(current[i].individual.treeAsInfixExpression())
+                    .append("\n");
+        return st.toString();
+    }
+}
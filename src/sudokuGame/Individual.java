@@ -3,8 +3,9 @@ package sudokuGame;
 import com.sun.istack.internal.NotNull;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Hashtable;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * {@code Individual} abstract class is representing one player (individual), set of genes,
@@ -43,9 +44,6 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
     /** ArrayList contain the operation names that we support in our {@code Individual} instances */
     static ArrayList<String> operators;
 
-    /** We need this random instance to generate randomly the first generation of individuals */
-	private static Random random=new Random();
-
 	/*Load the functions names and the operators names*/
 	static {
 		fillFunctions();
@@ -130,6 +128,13 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
     private int fitness;
 
 
+    /**
+     * True if the {@link #fitness fitness} is only an upper bound that the {@link FitnessScreening screen} gave,
+     * and NOT the exact fitness, such a fitness is good for ranking the individuals outside the elite only.
+     */
+    private boolean fitnessBound;
+
+
     /** Tree-Based Genetic Programing*/
     protected Node<TerminalOrPrimitive> tree;
 
@@ -138,6 +143,21 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
     private int height;
 
 
+    /**
+     * The simplified copy of the {@link #tree tree} that we really run while evaluating,
+     * it return exactly the same grades as the tree, see {@link TreeSimplifier}.
+     * It's null until the first evaluation, and we never save it, the tree is still the genome.
+     */
+    private Node<TerminalOrPrimitive> evaluationTree;
+
+
+    /**
+     * On which parameters the grade of the {@link #evaluationTree evaluation tree} depends,
+     * combination of {@link TreeAnalyzer#DEPENDS_ON_CELL} and {@link TreeAnalyzer#DEPENDS_ON_KEY}.
+     */
+    private int evaluationDependencies;
+
+
     /**
      * This method is evaluate the fitness of the individual (how much good this individual),
      * and return Integer num that represent, how much good is the player (smaller is better)
@@ -151,16 +171,31 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
     /**
      * Initialize {@code Individual} instance, the instance will try to solve the sudoku,
      * in GP way.
+     * The tree is generated from the gaven seeded random stream, so the same seed always create the same
+     * individual. The individual is usually a prototype and the {@link Population population} regenerate
+     * the trees of the clones from the stream of the population,
+     * see {@link #reGenerateFullTree(SplittableRandom) reGenerateFullTree}.
      * @param height is the height of the tree that the individual contain, be careful when choosing
      *               the height number,very high number (grater than 14) will slow the performance.
+     * @param random is the random stream that we draw the tree from.
      */
-    public Individual(int height) {
+    public Individual(int height, SplittableRandom random) {
 		this.fitness =NOT_PLAYED_YET;
 		setHeight(height);
-		this.tree=generateFullTree(this.height);
+		this.tree=generateFullTree(this.height, random);
 	}
 
 
+    /**
+     * Initialize {@code Individual} instance without a tree, for individuals that hold another
+     * genome (like {@link CartesianIndividual}), they must override the methods that use the tree.
+     */
+    protected Individual() {
+        this.fitness = NOT_PLAYED_YET;
+        this.height = 1;
+    }
+
+
     /**
      * Get the fitness of the player (individual), if the player have been played,
      * if the player (individual) did't played yet then let hem try to solve the sudoku
@@ -174,6 +209,72 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
 	}
 
 
+    /**
+     * Set the fitness of the player (individual) without letting him play,
+     * we use it when the fitness is already known from another way,
+     * for example from the truncated play in {@link FitnessScreening}.
+     * @param fitness is the fitness that we want to set.
+     */
+    void setFitness(int fitness) {
+        this.fitness = fitness;
+        this.fitnessBound = false;
+    }
+
+
+    /**
+     * Set an upper bound of the fitness, without letting the player play until the end,
+     * the {@link FitnessScreening screen} use it for the players that can NOT enter the elite.
+     * The bound is used for ranking only, it's NOT reported, rewarded or saved as a fitness,
+     * and the player is screened again if he survive into the next generation.
+     * @param upperBound is the empty cells that remain after the truncated play.
+     */
+    void setFitnessUpperBound(int upperBound) {
+        this.fitness = upperBound;
+        this.fitnessBound = true;
+    }
+
+
+    /**
+     * Check if the fitness of the player is known exactly (he played until the end).
+     * @return true if the player was evaluated and his fitness is NOT only an upper bound.
+     */
+    boolean isFitnessExact() {
+        return fitness != NOT_PLAYED_YET && !fitnessBound;
+    }
+
+
+    /**
+     * Clone the current instance with his fitness (exact or bound), we use it when the copy has exactly
+     * the same tree, so he play exactly like the current instance and we don't need to evaluate him again.
+     * @return a new instance (deep copy) that equal to the current instance, with the same fitness.
+     */
+    Individual copyWithFitness() {
+        Individual copy = clone();
+        copy.fitness = fitness;
+        copy.fitnessBound = fitnessBound;
+        return copy;
+    }
+
+
+    /**
+     * Forget the fitness of the player, so he is evaluated again,
+     * we use it for a player that has only an {@link #setFitnessUpperBound(int) upper bound}.
+     */
+    void resetFitness() {
+        this.fitness = NOT_PLAYED_YET;
+        this.fitnessBound = false;
+    }
+
+
+    /**
+     * Check if the player (individual) already played and his fitness is known.
+     * @return true if the fitness already evaluated, false otherwise.
+     */
+    boolean isEvaluated() {
+        return fitness != NOT_PLAYED_YET;
+    }
+
+
     /**
      * This method compute the grade for the specified number (key parameter) that can inserted (without conflict),
      * in the specified empty cells (board[row, col] parameters).
@@ -190,13 +291,65 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
      *                   grade as a value for every key that represent how good this option as solution,
      *                   we choose smaller grade is better but you could choose larger is better,
      *                   it will not change the solution.
+     * @param features the features of the board state that the terminals can read instead of scanning the board,
+     *                 null if we don't have them.
      * @return a grade for the key (number) as a solution in the index board[row, col],
      * the return value is a grade to tell us how much good this solution.
      */
     double run(final int row, final int col, final int key, final int[][] board,
-               final Hashtable<Integer,Double> [][]  gradeboard)
+               final Hashtable<Integer,Double> [][]  gradeboard, final BoardFeatures features)
     {
-        return tree.getValue().run(row, col, key, board, gradeboard);
+        Node<TerminalOrPrimitive> root = (evaluationTree != null) ? evaluationTree : tree;
+        return root.getValue().run(row, col, key, board, gradeboard, features);
+    }
+
+
+    /**
+     * Build the simplified copy of the tree that we run while evaluating, if we didn't build it yet.
+     * The simplified tree is smaller (or equal) and return exactly the same grades,
+     * so the evaluation is faster and the fitness is NOT changed.
+     * @param dimensions is the dimensions of the board that the individual play on.
+     * @see TreeSimplifier
+     */
+    void prepareEvaluationTree(int dimensions) {
+        if (evaluationTree == null) {
+            evaluationTree = new TreeSimplifier(dimensions).simplify(tree);
+            evaluationDependencies = TreeAnalyzer.findDependencies(evaluationTree);
+        }
+    }
+
+
+    /**
+     * Check if the grade of the tree depends on the cell (row and column),
+     * if it's NOT, all the cells get the same grade for the same key.
+     * Valid only after {@link #prepareEvaluationTree(int) prepareEvaluationTree}.
+     * @return true if the grade depends on the cell, false otherwise.
+     * @see TreeAnalyzer
+     */
+    boolean gradeDependsOnCell() {
+        return (evaluationDependencies & TreeAnalyzer.DEPENDS_ON_CELL) != 0;
+    }
+
+
+    /**
+     * Check if the grade of the tree depends on the key (the number that we grade),
+     * if it's NOT, all the options of a cell get the same grade.
+     * Valid only after {@link #prepareEvaluationTree(int) prepareEvaluationTree}.
+     * @return true if the grade depends on the key, false otherwise.
+     * @see TreeAnalyzer
+     */
+    boolean gradeDependsOnKey() {
+        return (evaluationDependencies & TreeAnalyzer.DEPENDS_ON_KEY) != 0;
+    }
+
+
+    /**
+     * Count the nodes of the simplified tree that we run while evaluating,
+     * if we didn't build it yet we count the nodes of the tree.
+     * @return the amount of the nodes that we run for every option in the board.
+     */
+    int getEvaluationSize() {
+        return (evaluationTree != null) ? evaluationTree.countNodes() : getSize();
     }
 
 
@@ -294,53 +447,67 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
 	}
 
 
+    /**
+     * Count the nodes of the tree (the size of the tree), the size tell us how much
+     * expensive is to run the tree for every option in the board.
+     * @return the amount of the nodes in the tree.
+     */
+    int getSize() {
+        return tree.countNodes();
+    }
+
+
     /**
      * Generate new full tree-based Genetic Programing, using
-     * {@link #createFullTree(int, Node) createFullTree} as help method.
+     * {@link #createFullTree(int, Node, SplittableRandom) createFullTree} as help method.
      * The tree is totally new tree, NO shared reference.
      * @param height is the height of the tree that you want to generate.
+     * @param random is the random stream that we draw the nodes from.
      * @return the root of generated tree.
      */
-    Node<TerminalOrPrimitive> generateFullTree(int height) {
+    Node<TerminalOrPrimitive> generateFullTree(int height, SplittableRandom random) {
         Node<TerminalOrPrimitive> root=new Node<>();
-        createFullTree(height,root);
+        createFullTree(height,root,random);
         return root;
     }
 
 
     /**
      * generate the tree of the current instance from the beginning,
-     * totally new generating, using {@link #generateFullTree(int) generateFullTree},
+     * totally new generating, using {@link #generateFullTree(int, SplittableRandom) generateFullTree},
      * with the same instance {@link #height height}.
      * NO optimizing for the implantation of this method, we totally create new tree,
      * if you want to optimize the memory and get better performance, you should
      * reimplement this method.
+     * @param random is the random stream that we draw the nodes from.
      */
-    public void reGenerateFullTree() {
-        this.tree=generateFullTree(this.height);
+    public void reGenerateFullTree(SplittableRandom random) {
+        this.tree=generateFullTree(this.height, random);
+        this.evaluationTree = null;
     }
 
 
     /**
      * Generate full tree-based Genetic Programing, receive a height and root node, must be NOT null,
      * and generate a random primitive instance for the root, in case the height is greater that 0,
-     * and then call {@link #createSubTree(int, Node) createSubTree} with root node,
+     * and then call {@link #createSubTree(int, Node, SplittableRandom) createSubTree} with root node,
      * and height as arguments.
      * In case the required height is 0 (it's mean we need tree with only one node),
      * the method will generate a random {@code Terminal} instance for the node, and done.
-     * This method use {@link #createSubTree(int, Node) createSubTree} recursive method
+     * This method use {@link #createSubTree(int, Node, SplittableRandom) createSubTree} recursive method
      * as a help method, that create the rest of the tree in recursive calling.
      * @param height the height of the tree that you want to generate.
      * @param node the root of the tree you want to generate, the root must be NOT null.
+     * @param random is the random stream that we draw the nodes from.
      */
-    protected void createFullTree(int height ,@NotNull Node<TerminalOrPrimitive> node ) {
+    protected void createFullTree(int height ,@NotNull Node<TerminalOrPrimitive> node, SplittableRandom random) {
 
         if(height>0)
         {
             int randNum=random.nextInt(operators.size());
             node.setValue((new Primitive(operators.get(randNum))));
             // Run recursive help method.
-            createSubTree(height, node);
+            createSubTree(height, node, random);
         }
         else
         {
@@ -365,8 +532,9 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
      * @param height the height of the tree that we want to generate in a recursive way.
      * @param node the root node, this root must be NOT null, you must create the root
      *             externally and send it as a parameter.
+     * @param random is the random stream that we draw the nodes from.
      */
-    private void createSubTree(int height , Node<TerminalOrPrimitive> node ) {
+    private void createSubTree(int height , Node<TerminalOrPrimitive> node, SplittableRandom random) {
 		int randNum;
 		if(height>1)
 		{
@@ -374,13 +542,13 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
 			node.createLeft(new Primitive(operators.get(randNum)));
 			((Primitive)node.getValue()).setLeft(node.getLeft());
 
-			createSubTree(height-1 , node.getLeft());
+			createSubTree(height-1 , node.getLeft(), random);
 
 			randNum=random.nextInt(operators.size());
 			node.createRight(new Primitive(operators.get(randNum)));
 			((Primitive)node.getValue()).setRight(node.getRight());
 
-			createSubTree(height-1 , node.getRight());
+			createSubTree(height-1 , node.getRight(), random);
 		}
 		else
 		{
@@ -517,7 +685,7 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
      * @param operationName is a String that represent the operation name.
      * @return the operator as a String
      */
-    private String ConvertFromFunctionToOperator(String operationName)
+    String ConvertFromFunctionToOperator(String operationName)
     {
         switch (operationName){
             case "Plus":
@@ -556,6 +724,15 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
     }
 
 
+    /**
+     * Comparator that sort the individuals ascending according to their fitness,
+     * and individuals with the same fitness ascending according to their tree size (parsimony),
+     * so between two individuals that play the same, we prefer the cheaper one.
+     */
+    static final Comparator<Individual> PARSIMONY_ORDER =
+            Comparator.comparingInt(Individual::getFitness).thenComparingInt(Individual::getSize);
+
+
     /**
      * toString method that create a {@code String} that represent the {@code Individual} instance,
      * we use {@link #treeAsPrefixExpression() treeAsPrefixExpression} method,
@@ -582,7 +759,9 @@ public abstract class Individual implements Cloneable, Comparable<Object>, Varia
             Individual copy = (Individual) super.clone();
             copy.setHeight(height);
             copy.tree=cloneFullTree();
+            copy.evaluationTree = null;
             copy.fitness = NOT_PLAYED_YET;
+            copy.fitnessBound = false;
             return copy;
 
         }
@@ -0,0 +1,148 @@
+package sudokuGame;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+
+/**
+ * {@code MemeticSearch} is a local search (hill climbing) on the best individuals between the generations.
+ * The {@link Variable#mutate(SplittableRandom) mutation} and the {@link Variable#crossover(Individual, SplittableRandom)
+ * crossover} change whole sub trees in random depths, here we try small changes:
+ * a {@link BoardIndividual#pointMutate(SplittableRandom) point mutation}
+ * replace one operator with another operator, or one terminal with another terminal, and keep the shape of the tree.
+ *
+ * <p>Every generation we take the {@link #topIndividuals topIndividuals} best individuals, and try point mutations
+ * on them in turns (one try for every individual in every round), until we spend the
+ * {@link #evaluationBudget evaluation budget}. A try that got a better fitness replace the individual,
+ * and the next tries continue from it. The tries are cheap when the
+ * {@link BoardFeatureCache feature cache} is used, because they reach the same board states as the original.
+ * The point mutations are drawn from the {@link Population#getRandom() random stream} of the population,
+ * and the tries of every round play together in the {@link Population#getScheduler() scheduler} of the population.
+ * @see Evolution
+ * @see BoardIndividual#pointMutate(SplittableRandom)
+ */
+public class MemeticSearch {
+
+    /** The amount of the best individuals that we try to improve every generation */
+    private final int topIndividuals;
+
+    /** The max amount of the evaluations (plays) every generation */
+    private final int evaluationBudget;
+
+    /** The amount of the evaluations in the last generation */
+    private int evaluations;
+
+    /** The amount of the tries that improved an individual in the last generation */
+    private int improvements;
+
+
+    /**
+     * Initialize the parameters of the search.
+     * @param topIndividuals is the amount of the best individuals that we try to improve every generation.
+     * @param evaluationBudget is the max amount of the evaluations (plays) every generation.
+     */
+    public MemeticSearch(int topIndividuals, int evaluationBudget) {
+        this.topIndividuals = topIndividuals;
+        this.evaluationBudget = evaluationBudget;
+    }
+
+
+    /**
+     * Try to improve the best individuals of the population with point mutations, and put the improved
+     * individuals in the population instead of the originals.
+     * In every round we draw the tries of all the active individuals in order, so the run is reproducible,
+     * and then play them together in the scheduler of the population (or in the calling thread without one).
+     * The tries are added to the evaluations of the population, and the population is ranked again
+     * only if an individual was improved.
+     * @param population is the population after the generation was created and evaluated.
+     */
+    void improve(Population population) {
+        evaluations = improvements = 0;
+        final Individual[] individuals = population.individuals;
+        final SplittableRandom random = population.getRandom();
+        final EvaluationScheduler scheduler = population.getScheduler();
+        final int top = Math.min(topIndividuals, individuals.length);
+        if (top <= 0 || evaluationBudget <= 0)
+            return;
+
+        /* The population may be NOT sorted (a tournament selection), so we find the best ones */
+        Integer[] order = new Integer[individuals.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparingInt(i -> individuals[i].getFitness()));
+
+        boolean[] done = new boolean[top];
+        Individual[] trials = new Individual[top];
+        int active = top;
+        while (evaluations < evaluationBudget && active > 0) {
+            int round = 0;
+            for (int t = 0; t < top && evaluations + round < evaluationBudget; t++) {
+                if (done[t])
+                    continue;
+                if (individuals[order[t]].isIdeal()) {
+                    done[t] = true;
+                    active--;
+                    continue;
+                }
+                trials[t] = ((BoardIndividual) individuals[order[t]]).pointMutate(random);
+                round++;
+            }
+            if (round == 0)
+                break;
+            evaluations += round;
+            play(trials, round, scheduler);
+
+            for (int t = 0; t < top; t++) {
+                if (trials[t] == null)
+                    continue;
+                final int index = order[t];
+                if (trials[t].getFitness() < individuals[index].getFitness()) {
+                    individuals[index] = trials[t];
+                    improvements++;
+                }
+                trials[t] = null;
+            }
+        }
+        population.addEvaluations(evaluations);
+        if (improvements > 0)
+            population.rankIndividuals(individuals);
+    }
+
+
+    /**
+     * Play the tries of one round, in the scheduler if we have one, and otherwise in the calling thread.
+     * @param trials is the tries of the round, null where an individual has no try.
+     * @param count is the amount of the tries in the round.
+     * @param scheduler play the tries in parallel, null mean in the calling thread.
+     */
+    private static void play(Individual[] trials, int count, EvaluationScheduler scheduler) {
+        Individual[] round = new Individual[count];
+        int next = 0;
+        for (Individual trial : trials)
+            if (trial != null)
+                round[next++] = trial;
+        if (scheduler != null)
+            scheduler.evaluate(round);
+        else
+            for (Individual trial : round)
+                trial.getFitness();
+    }
+
+
+    /**
+     * Get the amount of the evaluations (plays) in the last generation.
+     * @return the amount of the evaluations.
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+
+    /**
+     * Get the amount of the tries that improved an individual in the last generation.
+     * @return the amount of the improvements.
+     */
+    public int getImprovements() {
+        return improvements;
+    }
+}
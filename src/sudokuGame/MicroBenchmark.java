@@ -0,0 +1,415 @@
+package sudokuGame;
+
+import java.lang.management.ManagementFactory;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * {@code MicroBenchmark} measure the hot paths of the evaluation, so we can check if an optimization really helps:
+ * {@link Terminal#run(int, int, int, int[][], Hashtable[][]) Terminal.run} for every terminal,
+ * {@link Primitive#run(int, int, int, int[][], Hashtable[][]) Primitive.run} (a whole tree) in several heights,
+ * {@link BoardIndividual#initializeGradeboard()}, {@link BoardIndividual#evaluateGradeboard()}, a whole
+ * {@link BoardIndividual#play()}, {@link Individual#clone()}, {@link Individual#copyFullTree(Node)},
+ * {@link Individual#mutate(SplittableRandom)}, {@link Individual#crossover(Individual, SplittableRandom)}
+ * and {@link Population#nextGeneration()}.
+ *
+ * <p>Every benchmark run first {@link #warmupIterations warmup iterations} (the JIT compile the code and the results
+ * are thrown), and then {@link #measureIterations measure iterations}. An iteration call the operation in batches
+ * until {@link #iterationMillis iterationMillis} passed, and we report the mean time of one operation and its
+ * standard deviation between the iterations. We also report the bytes that the operation allocate (bytes/op),
+ * from the allocation counter of the thread (the benchmarks run in one thread, the parallel play is disabled).
+ * Every operation return a value that we sum, so the JIT can't remove the work.
+ *
+ * <p>The boards are loaded from the boards file and all the trees and the random streams come from fixed seeds,
+ * so two runs measure exactly the same work, and the results of two versions of the code can be compared.
+ * The results are printed and written as a report.
+ * @see CSV_Writer
+ */
+public class MicroBenchmark {
+
+    /** The seed of the trees and the random streams of all the benchmarks */
+    private static final long SEED = 20160623L;
+
+    /** The amount of the iterations that we throw, while the JIT compile the code */
+    private final int warmupIterations;
+
+    /** The amount of the iterations that we measure */
+    private final int measureIterations;
+
+    /** The time of one iteration, in milliseconds */
+    private final int iterationMillis;
+
+    /** The sum of the results of the operations, we print it so the JIT can't remove the work */
+    private double blackhole;
+
+
+    /**
+     * One benchmark, an operation that we measure.
+     */
+    abstract static class Benchmark {
+        /** The name of the benchmark in the results */
+        final String name;
+
+        Benchmark(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Run the operation several times.
+         * @param operations is the amount of the operations.
+         * @return a value that depend on the results of the operations.
+         */
+        abstract double run(int operations);
+    }
+
+
+    /**
+     * Initialize the harness.
+     * @param warmupIterations is the amount of the iterations that we throw.
+     * @param measureIterations is the amount of the iterations that we measure.
+     * @param iterationMillis is the time of one iteration, in milliseconds.
+     * @throws RuntimeException if we have no iterations to measure, or the iterations have no time.
+     */
+    public MicroBenchmark(int warmupIterations, int measureIterations, int iterationMillis) {
+        if (measureIterations < 1 || iterationMillis < 1)
+            throw new RuntimeException("The benchmark must measure at least one iteration of at least 1 millisecond");
+        this.warmupIterations = Math.max(0, warmupIterations);
+        this.measureIterations = measureIterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+
+    /**
+     * Measure one benchmark.
+     * @param benchmark is the benchmark.
+     * @return the mean nanoseconds of one operation, their standard deviation between the iterations,
+     * the bytes that one operation allocate (-1 if the JVM can't count them) and the amount of the operations
+     * that we measured.
+     */
+    double[] measure(Benchmark benchmark) {
+        int batch = 1;
+        for (int i = 0; i < warmupIterations; i++)
+            batch = iterate(benchmark, batch, null);
+        double[] nanosPerOp = new double[measureIterations];
+        long[] totals = new long[3];
+        for (int i = 0; i < measureIterations; i++) {
+            long[] iteration = new long[3];
+            batch = iterate(benchmark, batch, iteration);
+            nanosPerOp[i] = (double) iteration[1] / iteration[0];
+            for (int k = 0; k < totals.length; k++)
+                totals[k] += iteration[k];
+        }
+        double mean = ExperimentRunner.mean(nanosPerOp);
+        double variance = 0;
+        for (double value : nanosPerOp)
+            variance += (value - mean) * (value - mean);
+        double deviation = measureIterations > 1 ? Math.sqrt(variance / (measureIterations - 1)) : 0;
+        double bytesPerOp = totals[2] >= 0 ? (double) totals[2] / totals[0] : -1;
+        return new double[]{mean, deviation, bytesPerOp, totals[0]};
+    }
+
+
+    /**
+     * Run one iteration: call the operation in batches until the time of the iteration passed.
+     * The batch grow until it take about a twentieth of the iteration, so reading the clock doesn't change the result.
+     * @param benchmark is the benchmark.
+     * @param batch is the amount of the operations in a batch.
+     * @param result is filled with the operations, the nanoseconds and the allocated bytes (-1 if the JVM
+     *               can't count them) of the iteration, null if we don't need them.
+     * @return the amount of the operations in a batch for the next iteration.
+     */
+    private int iterate(Benchmark benchmark, int batch, long[] result) {
+        final long limit = iterationMillis * 1000000L;
+        final long startBytes = allocatedBytes();
+        final long start = System.nanoTime();
+        long operations = 0, elapsed = 0;
+        while (elapsed < limit) {
+            blackhole += benchmark.run(batch);
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+            if (elapsed < limit / 20 && batch < (1 << 24))
+                batch *= 2;
+        }
+        final long endBytes = allocatedBytes();
+        if (result != null) {
+            result[0] = operations;
+            result[1] = elapsed;
+            result[2] = startBytes >= 0 && endBytes >= 0 ? endBytes - startBytes : -1;
+        }
+        return batch;
+    }
+
+
+    /**
+     * Get the bytes that the current thread allocated since it started.
+     * @return the allocated bytes, -1 if the JVM can't count them.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled())
+            return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+
+    /**
+     * Measure all the benchmarks, print the results and write them into a report.
+     * @param benchmarks is the benchmarks.
+     */
+    public void runAll(List<Benchmark> benchmarks) {
+        CSV_Writer report = new CSV_Writer("benchmark_" + new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss")
+                .format(new Date()) + ".csv");
+        report.createCsvFile();
+        report.appendCsvFile(new String[]{"Warmup Iterations:", Integer.toString(warmupIterations)});
+        report.appendCsvFile(new String[]{"Measure Iterations:", Integer.toString(measureIterations)});
+        report.appendCsvFile(new String[]{"Iteration Time (ms):", Integer.toString(iterationMillis)});
+        report.appendCsvFile(new String[]{""});
+        report.appendCsvFile(new String[]{"Benchmark", "Time (ns/op)", "Error (ns/op)", "Allocation (bytes/op)",
+                "Operations"});
+        System.out.println(String.format("%-60s %15s %12s %15s %12s", "Benchmark", "ns/op", "error", "bytes/op",
+                "operations"));
+        for (Benchmark benchmark : benchmarks) {
+            double[] result = measure(benchmark);
+            System.out.println(String.format("%-60s %15.1f %12.1f %15.1f %12d", benchmark.name, result[0], result[1],
+                    result[2], (long) result[3]));
+            report.appendCsvFile(new String[]{benchmark.name, Double.toString(result[0]), Double.toString(result[1]),
+                    Double.toString(result[2]), Long.toString((long) result[3])});
+        }
+        System.out.println("Blackhole: " + blackhole);
+    }
+
+
+    /**
+     * Create all the benchmarks on a board.
+     * @param board is the board, every benchmark get his own copy.
+     * @param heights is the tree heights of the {@code Primitive.run} benchmarks.
+     * @param populationSize is the population size of the {@code nextGeneration} benchmark.
+     * @return the benchmarks.
+     */
+    static List<Benchmark> createBenchmarks(int[][] board, int[] heights, int populationSize) {
+        List<Benchmark> benchmarks = new ArrayList<>();
+        final int[][] state = copy(board);
+        final Hashtable<Integer, Double>[][] gradeboard = options(state);
+        /* All the options of the board, row, col and key of every option */
+        List<int[]> optionList = new ArrayList<>();
+        for (int i = 0; i < state.length; i++)
+            for (int j = 0; j < state.length; j++)
+                for (int key : gradeboard[i][j].keySet())
+                    optionList.add(new int[]{i, j, key});
+        final int[][] options = optionList.toArray(new int[0][]);
+
+        for (String function : Individual.functions) {
+            final Terminal terminal = new Terminal(function);
+            benchmarks.add(new Benchmark("Terminal.run " + function) {
+                int next;
+                @Override
+                double run(int operations) {
+                    double sum = 0;
+                    for (int op = 0; op < operations; op++) {
+                        int[] option = options[next];
+                        next = next + 1 < options.length ? next + 1 : 0;
+                        sum += terminal.run(option[0], option[1], option[2], state, gradeboard);
+                    }
+                    return sum;
+                }
+            });
+        }
+
+        for (int height : heights) {
+            final BoardIndividual individual = player(board, height);
+            benchmarks.add(new Benchmark("Primitive.run height " + height) {
+                int next;
+                @Override
+                double run(int operations) {
+                    double sum = 0;
+                    for (int op = 0; op < operations; op++) {
+                        int[] option = options[next];
+                        next = next + 1 < options.length ? next + 1 : 0;
+                        sum += individual.tree.getValue().run(option[0], option[1], option[2], state, gradeboard);
+                    }
+                    return sum;
+                }
+            });
+        }
+
+        final BoardIndividual player = player(board, 5);
+        player.startPlay();
+        benchmarks.add(new Benchmark("BoardIndividual.initializeGradeboard") {
+            @Override
+            double run(final int operations) {
+                player.inWorkspace(() -> {
+                    for (int op = 0; op < operations; op++)
+                        player.initializeGradeboard();
+                });
+                return operations;
+            }
+        });
+        benchmarks.add(new Benchmark("BoardIndividual.evaluateGradeboard") {
+            @Override
+            double run(final int operations) {
+                player.inWorkspace(() -> {
+                    for (int op = 0; op < operations; op++)
+                        player.evaluateGradeboard();
+                });
+                return operations;
+            }
+        });
+
+        final BoardIndividual playing = player(board, 5);
+        benchmarks.add(new Benchmark("BoardIndividual.play") {
+            @Override
+            double run(int operations) {
+                double sum = 0;
+                for (int op = 0; op < operations; op++)
+                    sum += playing.play();
+                return sum;
+            }
+        });
+
+        final BoardIndividual parent = player(board, 5);
+        final BoardIndividual other = player(board, 5);
+        other.reGenerateFullTree(new SplittableRandom(SEED + 1));
+        benchmarks.add(new Benchmark("Individual.clone") {
+            @Override
+            double run(int operations) {
+                double sum = 0;
+                for (int op = 0; op < operations; op++)
+                    sum += parent.clone().getHeight();
+                return sum;
+            }
+        });
+        benchmarks.add(new Benchmark("Individual.copyFullTree") {
+            @Override
+            double run(int operations) {
+                double sum = 0;
+                for (int op = 0; op < operations; op++)
+                    sum += parent.copyFullTree(parent.tree).getValue().hashCode();
+                return sum;
+            }
+        });
+        benchmarks.add(new Benchmark("Individual.mutate") {
+            final SplittableRandom random = new SplittableRandom(SEED);
+            @Override
+            double run(int operations) {
+                double sum = 0;
+                for (int op = 0; op < operations; op++)
+                    sum += parent.mutate(random).getHeight();
+                return sum;
+            }
+        });
+        benchmarks.add(new Benchmark("Individual.crossover") {
+            final SplittableRandom random = new SplittableRandom(SEED);
+            @Override
+            double run(int operations) {
+                double sum = 0;
+                for (int op = 0; op < operations; op++)
+                    sum += parent.crossover(other, random).getHeight();
+                return sum;
+            }
+        });
+
+        final Population population = new Population(populationSize, player(board, 5),
+                new TournamentSelection(0.3, 0.7, 0.4), null, null, 0, new SplittableRandom(SEED), null);
+        benchmarks.add(new Benchmark("Population.nextGeneration size " + populationSize) {
+            @Override
+            double run(int operations) {
+                double sum = 0;
+                for (int op = 0; op < operations; op++) {
+                    population.nextGeneration();
+                    sum += population.getBest().getFitness();
+                }
+                return sum;
+            }
+        });
+        return benchmarks;
+    }
+
+
+    /**
+     * Create a player with a tree from the fixed seed, that play in one thread.
+     * @param board is the board, the player get his own copy.
+     * @param height is the height of the tree.
+     * @return the player.
+     */
+    private static BoardIndividual player(int[][] board, int height) {
+        BoardIndividual player = new BoardIndividual(height, copy(board), new SplittableRandom(SEED + height));
+        player.setParallelThresholds(0, 0);
+        return player;
+    }
+
+
+    /**
+     * Copy a board.
+     * @param board is the board.
+     * @return a deep copy of the board.
+     */
+    private static int[][] copy(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++)
+            copy[i] = board[i].clone();
+        return copy;
+    }
+
+
+    /**
+     * Find the options of every empty cell of the board, like the gradeboard in the start of the play.
+     * @param board is the board.
+     * @return the gradeboard, the options of every cell with NaN grades.
+     */
+    @SuppressWarnings("unchecked")
+    private static Hashtable<Integer, Double>[][] options(int[][] board) {
+        final int dimensions = board.length;
+        final int squareLength = (int) Math.sqrt(dimensions);
+        Hashtable<Integer, Double>[][] gradeboard = new Hashtable[dimensions][dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = 0; j < dimensions; j++) {
+                gradeboard[i][j] = new Hashtable<>();
+                if (board[i][j] != 0)
+                    continue;
+                for (int key = 1; key <= dimensions; key++) {
+                    boolean conflict = false;
+                    for (int k = 0; k < dimensions && !conflict; k++)
+                        conflict = board[i][k] == key || board[k][j] == key
+                                || board[(i / squareLength) * squareLength + k / squareLength]
+                                [(j / squareLength) * squareLength + k % squareLength] == key;
+                    if (!conflict)
+                        gradeboard[i][j].put(key, Double.NaN);
+                }
+            }
+        }
+        return gradeboard;
+    }
+
+
+    /**
+     * Run all the benchmarks with the settings below.
+     * @param args are NOT used.
+     */
+    public static void main(String[] args) {
+
+        /* File path, sudoku dimensions and the index of the board that the benchmarks play on*/
+        String filePath = "boards/realBoards.txt";
+        int sudokuDimensions = 9;
+        int boardIndex = 0;
+
+        /* Warmup iterations, measure iterations and the time of one iteration (ms)*/
+        int warmupIterations = 5;
+        int measureIterations = 10;
+        int iterationMillis = 500;
+
+        /* Tree heights of the Primitive.run benchmarks, and the population size of the nextGeneration benchmark*/
+        int[] heights = {2, 4, 6, 8};
+        int populationSize = 50;
+
+        int[][] board = new SudokuFileUtil(filePath, sudokuDimensions).loadSudoku(boardIndex);
+        new MicroBenchmark(warmupIterations, measureIterations, iterationMillis)
+                .runAll(createBenchmarks(board, heights, populationSize));
+    }
+}
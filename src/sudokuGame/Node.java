@@ -181,4 +181,26 @@ class Node<T> {
 		return findTreeHeight(this.right);
 	}
 
+
+    /**
+     * Is't recursive private method that count the nodes of the general tree in recursive way.
+     * @param node is the current node that we reach in recursive function.
+     * @return the amount of the nodes in the tree.
+     */
+	private int countTreeNodes(Node<T> node) {
+		if (node == null)
+			return 0;
+		return 1 + countTreeNodes(node.left) + countTreeNodes(node.right);
+	}
+
+    /**
+     * Count the nodes of the tree from current {@code Node} (root),
+     * use {@link #countTreeNodes(Node) countTreeNodes} recursive function.
+     * @return the amount of the nodes in the tree (the size of the tree).
+     */
+	int countNodes()
+	{
+		return countTreeNodes(this);
+	}
+
 }
@@ -1,6 +1,11 @@
 package sudokuGame;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.ToIntFunction;
 
 /**
  * This class representing our population, the population is a collection of individuals
@@ -8,9 +13,12 @@ import java.util.Arrays;
  * {@code Population} class will generate the first generation,
  * and it will be responsible to create the next generation according to selection interface.
  * The next generation base is the current generation but we do
- * {@link Individual#crossover(Individual) crossover} with the good individuals
- * and do {@link Individual#mutate() mutate} for some of the individuals.
+ * {@link Individual#crossover(Individual, SplittableRandom) crossover} with the good individuals
+ * and do {@link Individual#mutate(SplittableRandom) mutate} for some of the individuals.
  * In this class we manage our individuals in an encapsulation class.
+ * All the random numbers of the population (the first generation, the selection, the operators and the restarts)
+ * are drawn from one {@link #random random stream}, so a population that created with the same seed
+ * evolve exactly the same way, for any amount of threads that evaluate the individuals.
  * @author Abedalrhman Nsasra
  * @version 1.0
  * @see Individual
@@ -28,6 +36,42 @@ public class Population {
     private final Selection selection;
 
 
+    /**
+     * Cheap screen of the individuals before the full play,
+     * null mean that every individual play the whole sudoku board.
+     */
+    private final FitnessScreening screening;
+
+
+    /**
+     * Library of good trees from previous runs, we seed a part of the first generation from it,
+     * and save the best trees into it in the end, null mean that we don't use a library.
+     */
+    private final TreeLibrary library;
+
+
+    /**
+     * Play the new individuals in parallel, the most expensive first, null mean that the individuals
+     * play one after another in the calling thread.
+     */
+    private EvaluationScheduler scheduler;
+
+
+    /**
+     * The random stream of the population, we draw from it all the random numbers of the evolution,
+     * only one thread use it at a time (the thread that create the generation).
+     */
+    private SplittableRandom random;
+
+
+    /** The amount of the individuals that were evaluated (played or screened) by the population so far */
+    private long evaluations;
+
+
+    /** The amount of the best individuals that we save into the {@link #library library} */
+    private static final int LIBRARY_RECORDS = 5;
+
+
     /**
      * Initialize the fields and generate the first generation,
      * the first generation is generated randomly.
@@ -35,16 +79,111 @@ public class Population {
      * @param prototype is just a prototype to help as to generate the first generation
      * @param selection is class that implement {@link Selection Selection} interface,
      *                  and determined the methodology of creation the next generation.
+     * @param random is the random stream of the population, the population own it from now.
+     */
+	public Population(int popSize, Individual prototype, Selection selection, SplittableRandom random) {
+		this(popSize, prototype, selection, null, random);
+	}
+
+
+    /**
+     * Initialize the fields and generate the first generation,
+     * the first generation is generated randomly, and the individuals are evaluated
+     * with the gaven {@link FitnessScreening screening}.
+     * @param popSize is the size of the required population
+     * @param prototype is just a prototype to help as to generate the first generation
+     * @param selection is class that implement {@link Selection Selection} interface,
+     *                  and determined the methodology of creation the next generation.
+     * @param screening is the cheap screen of the individuals before the full play,
+     *                  null mean that every individual play the whole sudoku board.
+     * @param random is the random stream of the population, the population own it from now.
+     */
+	public Population(int popSize, Individual prototype, Selection selection, FitnessScreening screening,
+					  SplittableRandom random) {
+		this(popSize, prototype, selection, screening, null, 0, random);
+	}
+
+
+    /**
+     * Initialize the fields and generate the first generation,
+     * libraryFraction of the first generation is seeded from the {@link TreeLibrary library} trees
+     * (the trees of the boards with the nearest features) and the rest are generated randomly.
+     * If the library has less trees than we need, the rest are generated randomly too.
+     * The population draw everything from the gaven random stream, so the same seed always create
+     * the same evolution.
+     * @param popSize is the size of the required population
+     * @param prototype is just a prototype to help as to generate the first generation
+     * @param selection is class that implement {@link Selection Selection} interface,
+     *                  and determined the methodology of creation the next generation.
+     * @param screening is the cheap screen of the individuals before the full play,
+     *                  null mean that every individual play the whole sudoku board.
+     * @param library is the library of good trees from previous runs, null mean no library.
+     * @param libraryFraction is the percent of the first generation that seeded from the library.
+     * @param random is the random stream of the population, the population own it from now.
+     */
+	public Population(int popSize, Individual prototype, Selection selection, FitnessScreening screening,
+					  TreeLibrary library, double libraryFraction, SplittableRandom random) {
+		this(popSize, prototype, selection, screening, library, libraryFraction, random, null);
+	}
+
+
+    /**
+     * Initialize the fields and generate the first generation, like
+     * {@link #Population(int, Individual, Selection, FitnessScreening, TreeLibrary, double, SplittableRandom)
+     * the constructor above}, and play the new individuals (from the first generation) with the gaven scheduler.
+     * @param popSize is the size of the required population
+     * @param prototype is just a prototype to help as to generate the first generation
+     * @param selection is class that implement {@link Selection Selection} interface,
+     *                  and determined the methodology of creation the next generation.
+     * @param screening is the cheap screen of the individuals before the full play,
+     *                  null mean that every individual play the whole sudoku board.
+     * @param library is the library of good trees from previous runs, null mean no library.
+     * @param libraryFraction is the percent of the first generation that seeded from the library.
+     * @param random is the random stream of the population, the population own it from now.
+     * @param scheduler play the new individuals in parallel, null mean in the calling thread.
      */
-	public Population(int popSize, Individual prototype, Selection selection) {
+	public Population(int popSize, Individual prototype, Selection selection, FitnessScreening screening,
+					  TreeLibrary library, double libraryFraction, SplittableRandom random,
+					  EvaluationScheduler scheduler) {
+		this.selection = selection;
+		this.screening = screening;
+		this.library = library;
+		this.random = random;
+		this.scheduler = scheduler;
 		individuals = new Individual[popSize];
-		for (int i = 0;  i < popSize;  ++i)
+		int seeded = 0;
+		if (library != null) {
+			for (Individual seed : library.seed((BoardIndividual) prototype, (int) (popSize * libraryFraction)))
+				individuals[seeded++] = seed;
+		}
+		for (int i = seeded;  i < popSize;  ++i)
 		{
 			individuals[i] = prototype.clone();
-			individuals[i].reGenerateFullTree();
+			individuals[i].reGenerateFullTree(random);
 		}
 		sort();
-		this.selection=selection;
+	}
+
+
+    /**
+     * Initialize the fields with individuals that already created,
+     * we use it when we restore the population from a {@link PopulationCheckpoint checkpoint}.
+     * @param individuals is the individuals of the population.
+     * @param selection is class that implement {@link Selection Selection} interface,
+     *                  and determined the methodology of creation the next generation.
+     * @param screening is the cheap screen of the individuals before the full play,
+     *                  null mean that every individual play the whole sudoku board.
+     * @param library is the library of good trees that we save the best trees into it, null mean no library.
+     * @param random is the random stream of the population, the population own it from now.
+     */
+	Population(Individual[] individuals, Selection selection, FitnessScreening screening, TreeLibrary library,
+			   SplittableRandom random) {
+		this.selection = selection;
+		this.screening = screening;
+		this.library = library;
+		this.random = random;
+		this.individuals = individuals;
+		sort();
 	}
 
 
@@ -63,10 +202,19 @@ public class Population {
      * Return the worst player (individual), the worst player is the one with the highest fitness.
      * Since we sorting our players ascending according to their fitness,
      * the worst one (highest fitness) is the last one.
+     * If we {@link FitnessScreening screen} the individuals, the last ones may have only an upper bound
+     * of their fitness, so we return the worst individual that his fitness is exact.
      * @return the individual with the highest fitness (the worst one).
      */
 	public Individual getWorst() {
-		return individuals[individuals.length-1];
+		Individual worst = individuals[individuals.length-1];
+		if (worst.isFitnessExact())
+			return worst;
+		worst = getBest();
+		for (Individual individual : individuals)
+			if (individual.isFitnessExact() && individual.getFitness() > worst.getFitness())
+				worst = individual;
+		return worst;
 	}
 
 
@@ -77,7 +225,8 @@ public class Population {
      * then we generate a new generation by mutation and crossover.
      * The property to apply mutation and crossover is determined in {@link Selection Selection},
      * and the methodology to apply the mutation and crossover is determined in
-     * {@link Selection#reproduce(Individual[], Individual) reproduce} method.
+     * {@link Selection#reproduce(Individual[], Individual, SplittableRandom) reproduce} method.
+     * The individuals are created one after another from the {@link #random random stream} of the population.
      * There are many different ways to apply mutation and crossover (matting),
      * so we are flexible about it, and who implement the {@link Selection Selection}
      * decide how to do it.
@@ -87,23 +236,181 @@ public class Population {
 	public void nextGeneration() {
 		Individual[] newPop = new Individual[individuals.length];
 		for (int index = 0;  index < newPop.length;  ++index) {
-            newPop[index] = selection.reproduce(individuals, individuals[index]);
+            newPop[index] = selection.reproduce(individuals, individuals[index], random);
 
             /* Other way to apply crossover and mutation */
-            //newPop[index] = selection.reproduce(individuals);
+            //newPop[index] = selection.reproduce(individuals, random);
         }
 		individuals = newPop;
 		sort();
 	}
 
 
+    /**
+     * Restart a part of the population, we keep the keepFraction of the best individuals (the elite)
+     * and regenerate the rest randomly, like the first generation.
+     * If the population is NOT sorted (a tournament selection), we sort it first to find the elite.
+     * We use it when the evolution is stuck in a plateau, and the individuals are too similar.
+     * In the end we sort the individuals form the best to the worst according to their fitness.
+     * @param keepFraction is the percent of the best individuals that we keep.
+     */
+	public void restart(double keepFraction) {
+		if (!selection.needsSortedPopulation())
+			sortAll();
+		int keep = Math.max(1, (int) (individuals.length * keepFraction));
+		for (int i = keep;  i < individuals.length;  ++i) {
+			individuals[i] = individuals[i].clone();
+			individuals[i].reGenerateFullTree(random);
+		}
+		sort();
+	}
+
+
     /**
      * Just sort the players (individuals) ascending according to there fitness,
      * form the best player (with lower fitness) to the worst (with higher fitness).
-     * We use the static method {@link Arrays#sort(Object[]) sort} from {@link Arrays} class.
+     * We use a counting sort by the fitness, see {@link #sortAll() sortAll}.
+     * If we have a {@link FitnessScreening screening}, we evaluate the individuals with it before sorting,
+     * and the individuals that still didn't play are played by the {@link #scheduler scheduler}, if we have one.
+     * The screening run its plays in the scheduler too, so the generation is parallel in both cases.
+     * If the {@link Selection selection} is parsimonious, individuals with the same fitness are sorted
+     * by their tree size.
+     * If the selection doesn't {@link Selection#needsSortedPopulation() need} the population sorted
+     * (a tournament), we only put the best player first and the worst player last.
      */
 	private void sort() {
-		Arrays.sort(individuals);
+		for (Individual individual : individuals)
+			if (!individual.isFitnessExact())
+				evaluations++;
+		if (scheduler != null)
+			scheduler.startGeneration();
+		if (screening != null)
+			screening.evaluate(individuals, scheduler);
+		if (scheduler != null)
+			scheduler.evaluate(individuals);
+		/* Evaluate everyone before we rank, so no one play in the middle of the ranking */
+		for (Individual individual : individuals)
+			individual.getFitness();
+		if (!selection.needsSortedPopulation())
+			placeBestAndWorst();
+		else
+			sortAll();
+	}
+
+
+    /**
+     * Sort all the players (individuals) form the best to the worst, if the {@link Selection selection}
+     * is parsimonious, individuals with the same fitness are sorted by their tree size.
+     * The fitness is a small integer (the empty cells, at most NxN), so instead of comparing the individuals
+     * we put them in buckets by their fitness (counting sort) in O(n + NxN).
+     * With parsimony we first sort by the tree size in the same way, and then by the fitness (radix sort).
+     * The counting sort is stable, so the order is exactly the same as {@link Arrays#sort(Object[]) sort}.
+     */
+	private void sortAll() {
+		if (selection.isParsimonious())
+			individuals = countingSort(individuals, Individual::getSize);
+		individuals = countingSort(individuals, Individual::getFitness);
+	}
+
+
+    /**
+     * Stable counting sort of the individuals by a small NOT negative integer key.
+     * @param source is the individuals that we want to sort, it's NOT changed.
+     * @param key is the key of every individual (fitness or tree size).
+     * @return new array of the individuals sorted ascending by the key,
+     * individuals with the same key stay in their order.
+     */
+	private static Individual[] countingSort(Individual[] source, ToIntFunction<Individual> key) {
+		int[] keys = new int[source.length];
+		int max = 0;
+		for (int i = 0;  i < source.length;  ++i) {
+			keys[i] = key.applyAsInt(source[i]);
+			max = Math.max(max, keys[i]);
+		}
+		/* start[k] is the first place of the individuals with key k in the sorted array */
+		int[] start = new int[max + 2];
+		for (int k : keys)
+			start[k + 1]++;
+		for (int k = 1;  k < start.length;  ++k)
+			start[k] += start[k - 1];
+		Individual[] sorted = new Individual[source.length];
+		for (int i = 0;  i < source.length;  ++i)
+			sorted[start[keys[i]]++] = source[i];
+		return sorted;
+	}
+
+
+    /**
+     * When the {@link Selection selection} doesn't need the population sorted, we only find the best
+     * player and the worst player in one pass, and swap them to the first place and the last place,
+     * so {@link #getBest() getBest} and {@link #getWorst() getWorst} still work.
+     */
+	private void placeBestAndWorst() {
+		Comparator<Individual> order = selection.isParsimonious() ?
+				Individual.PARSIMONY_ORDER : Comparator.naturalOrder();
+		int best = 0;
+		for (int i = 1;  i < individuals.length;  ++i) {
+			if (order.compare(individuals[i], individuals[best]) < 0)
+				best = i;
+		}
+		swap(0, best);
+		int worst = individuals.length - 1;
+		for (int i = 1;  i < individuals.length - 1;  ++i) {
+			if (order.compare(individuals[i], individuals[worst]) > 0)
+				worst = i;
+		}
+		swap(individuals.length - 1, worst);
+	}
+
+
+    /**
+     * Swap two players (individuals) in the array.
+     * @param first is the index of the first player.
+     * @param second is the index of the second player.
+     */
+	private void swap(int first, int second) {
+		Individual tmp = individuals[first];
+		individuals[first] = individuals[second];
+		individuals[second] = tmp;
+	}
+
+
+    /**
+     * Save the best individuals into the {@link #library library}, so the next runs can start with them,
+     * only the individuals that their fitness is exact (NOT an upper bound of the screen).
+     * We call it in the end of the evolution, it do nothing if we don't use a library.
+     * If the population is NOT sorted (a tournament selection), we sort it first.
+     */
+	public void saveBestToLibrary() {
+		if (library == null)
+			return;
+		if (!selection.needsSortedPopulation())
+			sortAll();
+		List<Individual> best = new ArrayList<>(LIBRARY_RECORDS);
+		for (Individual individual : getTop(LIBRARY_RECORDS))
+			if (individual.isFitnessExact())
+				best.add(individual);
+		library.add(best);
+	}
+
+
+    /**
+     * Return the best players (individuals), the first players of the sorted population.
+     * @param amount is the amount of the best players that we want.
+     * @return list of the best players, from the best, at most amount players.
+     */
+	public List<Individual> getTop(int amount) {
+		return Arrays.asList(individuals).subList(0, Math.min(amount, individuals.length));
+	}
+
+
+    /**
+     * Return the percent of the best players (individuals), the first players of the sorted population.
+     * @param percent is the percent of the best players that we want (between 0 and 1).
+     * @return list of the best players, from the best.
+     */
+	public List<Individual> getTopPercent(double percent) {
+		return getTop((int) (individuals.length * percent));
 	}
 
 
@@ -143,6 +450,102 @@ public class Population {
 	}
 
 
+    /**
+     * Returns the methodology of creation the new individuals,
+     * {@link SteadyStateEvolution} use it to create the new individuals without generations.
+     * @return the selection of the population.
+     */
+	Selection getSelection() {
+		return selection;
+	}
+
+
+    /**
+     * Replace the individuals of the population and sort them,
+     * {@link SteadyStateEvolution} use it to return the final individuals into the population.
+     * @param individuals is the new individuals of the population.
+     */
+	void setIndividuals(Individual[] individuals) {
+		this.individuals = individuals;
+		sort();
+	}
+
+
+    /**
+     * Replace the individuals of the population and only rank them again, without the screening and
+     * without a new generation of the scheduler, all the individuals must be evaluated already.
+     * The {@link MemeticSearch local search} use it after it replaced some individuals with better ones.
+     * @param individuals is the new individuals of the population.
+     */
+	void rankIndividuals(Individual[] individuals) {
+		this.individuals = individuals;
+		if (!selection.needsSortedPopulation())
+			placeBestAndWorst();
+		else
+			sortAll();
+	}
+
+
+    /**
+     * Add evaluations that were played outside of the population,
+     * the {@link MemeticSearch local search} add its tries.
+     * @param count is the amount of the evaluations.
+     */
+	void addEvaluations(int count) {
+		evaluations += count;
+	}
+
+
+    /**
+     * Returns the scheduler that play the new individuals in parallel,
+     * we need it only for creating a report.
+     * @return the scheduler of the population, null if the individuals play in the calling thread.
+     */
+	public EvaluationScheduler getScheduler() {
+		return scheduler;
+	}
+
+
+    /**
+     * Returns the amount of the individuals that were evaluated by the population so far (the new individuals
+     * of every generation and the tries of the local search).
+     * @return the amount of the evaluations.
+     */
+	public long getEvaluations() {
+		return evaluations;
+	}
+
+
+    /**
+     * Set the scheduler that play the new individuals in parallel, from the next generation,
+     * we use it for a population that we restored from a {@link PopulationCheckpoint checkpoint}.
+     * @param scheduler play the new individuals in parallel, null mean in the calling thread.
+     */
+	public void setScheduler(EvaluationScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+
+    /**
+     * Returns the random stream of the population, the {@link MemeticSearch local search} draw from it too.
+     * Only the thread that create the generations may use it.
+     * @return the random stream of the population.
+     */
+	SplittableRandom getRandom() {
+		return random;
+	}
+
+
+    /**
+     * Returns the cheap screen of the individuals before the full play,
+     * we need it only for creating a report.
+     * @return the screening of the population, null if every individual play the whole board.
+     */
+	public FitnessScreening getScreening() {
+		return screening;
+	}
+
+
     /**
      * Return the size of the population (the amount of the individuals).
      * @return the size of population (the amount of the individuals).
@@ -164,16 +567,51 @@ public class Population {
 	}
 
 
+    /**
+     * Calculate the average of the tree size (amount of the nodes) of the individuals and return it.
+     * We need this method only to create a report, to see that the trees don't grow over the generations.
+     * @return the average of the individuals's tree size.
+     */
+	public double getAvgTreeSize() {
+		double sum=0;
+		for (int i = 0; i < individuals.length; i++) {
+			sum+=individuals[i].getSize();
+		}
+		return sum/(double)individuals.length;
+	}
+
+
+    /**
+     * Calculate the average size of the simplified trees that the individuals really run
+     * (see {@link TreeSimplifier}), and return it.
+     * We need this method only to create a report, to see how much the simplification save.
+     * @return the average of the individuals's simplified tree size.
+     */
+	public double getAvgEvaluationTreeSize() {
+		double sum=0;
+		for (int i = 0; i < individuals.length; i++) {
+			sum+=individuals[i].getEvaluationSize();
+		}
+		return sum/(double)individuals.length;
+	}
+
+
     /**
      * Calculate the average of the fitness of the individuals and return it.
+     * If we {@link FitnessScreening screen} the individuals, the individuals that have only an upper bound
+     * of their fitness are NOT counted.
      * We need this method only to create a report.
      * @return the average of the individuals's fitness.
      */
 	public double getAvgPopulationFitness() {
 		double sum=0;
+		int count=0;
 		for (int i = 0; i < individuals.length; i++) {
-			sum+=individuals[i].getFitness();
+			if (individuals[i].isFitnessExact()) {
+				sum+=individuals[i].getFitness();
+				count++;
+			}
 		}
-		return sum/(double)individuals.length;
+		return count > 0 ? sum/(double)count : 0;
 	}
 }
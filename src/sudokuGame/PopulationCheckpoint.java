@@ -0,0 +1,352 @@
+package sudokuGame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code PopulationCheckpoint} is responsible to save the whole population into a file while we evolve,
+ * and to load it back, so a long evolution can be resumed if the application stopped in the middle.
+ *
+ * <p>The checkpoint is a compact binary file, it contains the generation number, the seed that a resumed
+ * population continue with, the sudoku board, a table of the primitive and terminal names,
+ * and then every individual as his fitness, his height and his tree in prefix order, when every node
+ * of the tree is only one byte (index in the names table, and the high bit tell if it's a primitive).
+ *
+ * <p>The file is written by a background thread, so the evolution doesn't wait for the disk.
+ * It's safe because we never change an individual after he entered the population
+ * ({@link Individual#mutate(SplittableRandom) mutate} and
+ * {@link Individual#crossover(Individual, SplittableRandom) crossover} create new individuals),
+ * so we only copy the array of the individuals in the main thread.
+ * We write into a temporary file and then move it over the checkpoint file, so a crash in the middle
+ * of writing never destroy the last good checkpoint.
+ * @see Population
+ * @see Evolution
+ */
+public class PopulationCheckpoint {
+
+    /** The first bytes of every checkpoint file ("SGCP") */
+    private static final int MAGIC = 0x53474350;
+
+    /** The version of the file format */
+    private static final int VERSION = 1;
+
+    /** The high bit of a node byte, tell that the node is a primitive */
+    private static final int PRIMITIVE_FLAG = 0x80;
+
+    /** The path of the checkpoint file */
+    private final String filePath;
+
+    /** Single background thread that write the checkpoints, one after the other */
+    private final ExecutorService writer;
+
+    /**
+     * The random stream that we draw the saved seeds from, it's NOT the stream of the population,
+     * so saving a checkpoint never change the random numbers of the evolution.
+     */
+    private final SplittableRandom seeds;
+
+    /** The generation number that we loaded from the checkpoint file */
+    private int generation;
+
+    /** The seed of the random stream of the population that we loaded from the checkpoint file */
+    private long seed;
+
+    /** The sudoku board that we loaded from the checkpoint file */
+    private int[][] board;
+
+    /** The individuals trees that we loaded from the checkpoint file */
+    private List<Node<TerminalOrPrimitive>> trees;
+
+    /** The individuals heights that we loaded from the checkpoint file */
+    private int[] heights;
+
+    /** The individuals fitness that we loaded from the checkpoint file */
+    private int[] fitness;
+
+
+    /**
+     * Create a checkpoint that save and load the population from the gaven file path.
+     * @param filePath is the path of the checkpoint file.
+     * @param seeds is the random stream that we draw the saved seeds from, split it from the seed of the run
+     *              (and NOT from the stream of the population), the checkpoint own it from now.
+     */
+    public PopulationCheckpoint(String filePath, SplittableRandom seeds) {
+        this.filePath = filePath;
+        this.seeds = seeds;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Check if the checkpoint file exist, so we can resume from it.
+     * @return true if the checkpoint file exist, false otherwise.
+     */
+    public boolean exists() {
+        return new File(filePath).isFile();
+    }
+
+
+    /**
+     * Save the population into the checkpoint file in a background thread.
+     * Here in the main thread we only copy the array of the individuals, and draw the seed that a resumed
+     * population continue with from our own {@link #seeds stream}. We don't touch the random stream of the
+     * population, so a run with checkpoints evolve exactly like the same seed without them, and a run
+     * that resumed from a checkpoint is repeatable (but it doesn't continue with the same random numbers
+     * as the run that saved the checkpoint).
+     * @param population is the population that we want to save, it must be sorted (evaluated).
+     * @param generation is the generation number of the population.
+     */
+    public void save(Population population, int generation) {
+        final Individual[] snapshot = Arrays.copyOf(population.individuals, population.individuals.length);
+        final int[][] sudoku = ((BoardIndividual) snapshot[0]).getOriginalSudoku();
+        final long nextSeed = seeds.nextLong();
+        writer.submit(() -> write(snapshot, sudoku, generation, nextSeed));
+    }
+
+
+    /**
+     * Wait until all the checkpoints that we submitted are written into the file,
+     * and stop the background thread, we call it at the end of the evolution.
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Write the checkpoint into a temporary file and then move it over the checkpoint file.
+     * @param individuals is the copy of the individuals array.
+     * @param sudoku is the original sudoku board.
+     * @param generation is the generation number of the population.
+     * @param seed is the seed of the random stream of a population that resume from this checkpoint.
+     */
+    private void write(Individual[] individuals, int[][] sudoku, int generation, long seed) {
+        File target = new File(filePath);
+        File tmp = new File(filePath + ".tmp");
+        if (target.getAbsoluteFile().getParentFile() != null)
+            target.getAbsoluteFile().getParentFile().mkdirs();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(generation);
+            out.writeLong(seed);
+            out.writeByte(sudoku.length);
+            for (int[] row : sudoku)
+                for (int cell : row)
+                    out.writeByte(cell);
+
+            List<String> names = new ArrayList<>(Individual.operators);
+            names.addAll(Individual.functions);
+            Map<String, Integer> nameIndex = writeNames(names, out);
+
+            out.writeInt(individuals.length);
+            for (Individual individual : individuals) {
+                out.writeInt(individual.isFitnessExact() ? individual.getFitness() : -1);
+                out.writeByte(individual.getHeight());
+                writeTree(individual.getTree(), nameIndex, out);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error while writing the checkpoint " + filePath);
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            System.err.println("Error while moving the checkpoint " + filePath);
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Load the checkpoint file, after loading you can get the board, the generation number
+     * and restore the population with {@link #restorePopulation(Individual, Selection, FitnessScreening, TreeLibrary)},
+     * the restored population get a random stream from the saved seed.
+     * @throws RuntimeException if the file is NOT a checkpoint file or can NOT be read.
+     */
+    public void load() {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filePath), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new RuntimeException(filePath + " is NOT a checkpoint file of this version");
+            generation = in.readInt();
+            seed = in.readLong();
+            int dimensions = in.readUnsignedByte();
+            board = new int[dimensions][dimensions];
+            for (int i = 0; i < dimensions; i++)
+                for (int j = 0; j < dimensions; j++)
+                    board[i][j] = in.readUnsignedByte();
+
+            String[] names = readNames(in);
+
+            int popSize = in.readInt();
+            trees = new ArrayList<>(popSize);
+            heights = new int[popSize];
+            fitness = new int[popSize];
+            for (int i = 0; i < popSize; i++) {
+                fitness[i] = in.readInt();
+                heights[i] = in.readUnsignedByte();
+                trees.add(readTree(names, in));
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error while reading the checkpoint " + filePath, e);
+        }
+    }
+
+
+    /**
+     * Create the population that we loaded from the checkpoint file.
+     * Every individual is a clone of the prototype with the loaded tree and fitness, and the population
+     * continue with the random stream of the saved seed.
+     * @param prototype is a prototype of the individuals, it should hold the loaded {@link #getBoard() board}.
+     * @param selection is the methodology of creation the next generation.
+     * @param screening is the cheap screen of the individuals, could be null.
+     * @param library is the library of good trees, could be null.
+     * @return the loaded population.
+     */
+    public Population restorePopulation(Individual prototype, Selection selection, FitnessScreening screening,
+                                        TreeLibrary library) {
+        Individual[] individuals = new Individual[trees.size()];
+        for (int i = 0; i < individuals.length; i++) {
+            individuals[i] = prototype.clone();
+            individuals[i].tree = trees.get(i);
+            individuals[i].setHeight(heights[i]);
+            if (fitness[i] >= 0)
+                individuals[i].setFitness(fitness[i]);
+        }
+        return new Population(individuals, selection, screening, library, new SplittableRandom(seed));
+    }
+
+
+    /**
+     * Returns the generation number that we loaded from the checkpoint file.
+     * @return the loaded generation number.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+
+    /**
+     * Returns the sudoku board that we loaded from the checkpoint file.
+     * @return the loaded sudoku board.
+     */
+    public int[][] getBoard() {
+        return board;
+    }
+
+
+    /* Static methods : */
+
+    /**
+     * Write the names table, the amount of the names and then every name.
+     * @param names is the list of the primitive and terminal names.
+     * @param out is the stream that we write into.
+     * @return map from every name to his index in the table.
+     * @throws IOException if the writing failed.
+     */
+    static Map<String, Integer> writeNames(List<String> names, DataOutput out) throws IOException {
+        Map<String, Integer> nameIndex = new HashMap<>();
+        out.writeByte(names.size());
+        for (String name : names) {
+            nameIndex.put(name, nameIndex.size());
+            out.writeUTF(name);
+        }
+        return nameIndex;
+    }
+
+
+    /**
+     * Read the names table that we wrote with {@link #writeNames(List, DataOutput) writeNames}.
+     * @param in is the stream that we read from.
+     * @return array of the names, by their index.
+     * @throws IOException if the reading failed.
+     */
+    static String[] readNames(DataInput in) throws IOException {
+        String[] names = new String[in.readUnsignedByte()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = in.readUTF();
+        return names;
+    }
+
+
+    /**
+     * Write the tree in prefix order (recursive way), every node is one byte,
+     * the index of his name in the names table, and the high bit is on for primitive nodes.
+     * @param node is the node that we reach in the recursive calling.
+     * @param nameIndex is the map from every name to his index in the names table.
+     * @param out is the stream that we write into.
+     * @throws IOException if the writing failed.
+     */
+    static void writeTree(Node<TerminalOrPrimitive> node, Map<String, Integer> nameIndex, DataOutput out)
+            throws IOException {
+        TerminalOrPrimitive value = node.getValue();
+        Integer index = nameIndex.get(value.getOperationName());
+        if (index == null)
+            throw new IOException(value.getOperationName() + " is NOT in the names table");
+        if (value.isPrimitive()) {
+            out.writeByte(PRIMITIVE_FLAG | index);
+            writeTree(node.getLeft(), nameIndex, out);
+            writeTree(node.getRight(), nameIndex, out);
+        }
+        else
+            out.writeByte(index);
+    }
+
+
+    /**
+     * Read a tree that we wrote with {@link #writeTree(Node, Map, DataOutput) writeTree},
+     * in a recursive way, and connect the primitives to their children.
+     * @param names is the names table.
+     * @param in is the stream that we read from.
+     * @return the root of the tree.
+     * @throws IOException if the reading failed.
+     */
+    static Node<TerminalOrPrimitive> readTree(String[] names, DataInput in) throws IOException {
+        int code = in.readUnsignedByte();
+        if ((code & PRIMITIVE_FLAG) != 0) {
+            Primitive primitive = new Primitive(names[code & ~PRIMITIVE_FLAG]);
+            Node<TerminalOrPrimitive> left = readTree(names, in);
+            Node<TerminalOrPrimitive> right = readTree(names, in);
+            primitive.setLeft(left);
+            primitive.setRight(right);
+            return new Node<>(left, right, primitive);
+        }
+        return new Node<>(new Terminal(names[code]));
+    }
+}
@@ -98,36 +98,49 @@ public class Primitive extends TerminalOrPrimitive {
 	@Override
 	double run(final int row, final int col, final int key, final  int[][] board,
                final Hashtable<Integer,Double> [][] gradeBoard) {
-		
+		return apply(left.getValue().run(row, col, key,board, gradeBoard)
+				,right.getValue().run(row, col, key,board, gradeBoard));
+	}
+
+
+	@Override
+	double run(final int row, final int col, final int key, final  int[][] board,
+               final Hashtable<Integer,Double> [][] gradeBoard, final BoardFeatures features) {
+		return apply(left.getValue().run(row, col, key, board, gradeBoard, features)
+				,right.getValue().run(row, col, key, board, gradeBoard, features));
+	}
+
+
+    /**
+     * Do the operation (+, -, *, /, %, Max, Min) on the gaven values, without the children,
+     * we use it in {@link #run(int, int, int, int[][], Hashtable[][]) run} and in genomes that
+     * hold the operands in another way (like {@link CartesianIndividual}).
+     * @param leftValue is the value of the left operand.
+     * @param rightValue is the value of the right operand.
+     * @return the result of the operation.
+     */
+	double apply(double leftValue, double rightValue) {
 		switch (this.operationName){
 		case "Plus":
-			return 	Plus(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
-			
+			return Plus(leftValue, rightValue);
+
 		case "Minus":
-			return Minus(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
+			return Minus(leftValue, rightValue);
 
 		case "Multi":
-			return Multi(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
-			
+			return Multi(leftValue, rightValue);
+
 		case "div":
-			return div(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
-			
+			return div(leftValue, rightValue);
+
 		case "Mod":
-			return Mod(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
-			
-			
+			return Mod(leftValue, rightValue);
+
 		case "Maximum":
-			return Maximum(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
-			
+			return Maximum(leftValue, rightValue);
+
 		case "Minimum":
-			return Minimum(left.getValue().run(row, col, key,board, gradeBoard)
-					,right.getValue().run(row, col, key,board, gradeBoard));
+			return Minimum(leftValue, rightValue);
 
 		default :
 		    /*This should Not happen unless you add operations in SudokuUtil::fillOperators*/
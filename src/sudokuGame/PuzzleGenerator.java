@@ -0,0 +1,357 @@
+package sudokuGame;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * {@code PuzzleGenerator} create sudoku puzzles with exactly one solution, so we can test and measure the solver
+ * on many boards (the files in the boards directory hold only few boards).
+ *
+ * <p>Every puzzle is created in two steps: first we fill a whole valid grid, we take the simple pattern grid
+ * (every row is the previous row shifted) and shuffle it randomly with changes that keep it valid: the numbers,
+ * the rows inside a band, the bands, the columns inside a stack, the stacks and the transpose.
+ * Then we remove the clues in a random order, and after every removal we check with a small solver that the puzzle
+ * still has only one solution, if it has more we put the clue back. We stop when we reached the
+ * {@link #clues target clues}, or when no clue can be removed, so a puzzle can have more clues than the target.
+ *
+ * <p>The puzzle number i is generated from the seed + i, so the same seed always create the same puzzles,
+ * for any amount of threads. The puzzles are written into a file in the {@code Grid:} format that
+ * {@link SudokuFileUtil} read, a cell is one character: 0 for an empty cell and the number in base 36
+ * (1-9 and then a-z), so the boards up to 25x25 are supported.
+ * @see SudokuFileUtil
+ */
+public class PuzzleGenerator {
+
+    /** The max board dimensions, a number must be one character in base 36 */
+    private static final int MAX_DIMENSIONS = 25;
+
+    /** The dimensions of the board, NxN when sqrt(N) is a natural number */
+    private final int dimensions;
+
+    /** The length of the square side, sqrt(N) */
+    private final int squareLength;
+
+    /** The amount of the clues (the filled cells) that we try to reach */
+    private final int clues;
+
+    /**
+     * The max amount of the states that the solver visit in one uniqueness check, if it didn't finish we keep the clue,
+     * so the puzzles are always unique, but on big boards we may stop with more clues.
+     */
+    private final int searchLimit;
+
+
+    /**
+     * Initialize the generator.
+     * @param dimensions is the dimensions of the board, NxN when sqrt(N) is a natural number, up to 25.
+     * @param clues is the amount of the clues that we try to reach.
+     * @param searchLimit is the max amount of the states that the solver visit in one uniqueness check.
+     * @throws RuntimeException if the dimensions are NOT supported or the clues are NOT in the board.
+     */
+    public PuzzleGenerator(int dimensions, int clues, int searchLimit) {
+        this.squareLength = (int) Math.round(Math.sqrt(dimensions));
+        if (dimensions < 1 || dimensions > MAX_DIMENSIONS || squareLength * squareLength != dimensions)
+            throw new RuntimeException("The dimensions must be NxN when sqrt(N) is a natural number, up to "
+                    + MAX_DIMENSIONS);
+        if (clues < 0 || clues > dimensions * dimensions)
+            throw new RuntimeException("The amount of the clues must be between 0 and " + dimensions * dimensions);
+        if (searchLimit < 1)
+            throw new RuntimeException("The search limit must be at least 1");
+        this.dimensions = dimensions;
+        this.clues = clues;
+        this.searchLimit = searchLimit;
+    }
+
+
+    /**
+     * Generate one puzzle.
+     * @param seed is the seed of the puzzle, the same seed always create the same puzzle.
+     * @return the puzzle, 0 for the empty cells.
+     */
+    public int[][] generate(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[][] grid = fillGrid(random);
+
+        int[] cells = permutation(dimensions * dimensions, random);
+        int filled = dimensions * dimensions;
+        for (int cell : cells) {
+            if (filled <= clues)
+                break;
+            final int row = cell / dimensions, col = cell % dimensions;
+            final int value = grid[row][col];
+            grid[row][col] = 0;
+            if (countSolutions(grid) == 1)
+                filled--;
+            else
+                grid[row][col] = value;
+        }
+        return grid;
+    }
+
+
+    /**
+     * Generate the puzzles from seed to seed + count - 1 in parallel, and write them into the file in their order,
+     * the file is replaced. We keep only few puzzles in the memory, so we can write millions of puzzles.
+     * @param filePath is the path of the file.
+     * @param count is the amount of the puzzles.
+     * @param seed is the seed of the first puzzle.
+     * @param threads is the amount of the threads that generate the puzzles.
+     * @return the amount of the puzzles that reached the {@link #clues target clues}.
+     * @throws RuntimeException if we can't write the file, or if the generation failed.
+     */
+    public int generate(String filePath, int count, long seed, int threads) {
+        File file = new File(filePath);
+        if (file.getAbsoluteFile().getParentFile() != null)
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        final int window = Math.max(1, threads) * 8;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        int reached = 0;
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            ArrayDeque<Future<int[][]>> pending = new ArrayDeque<>(window);
+            int written = 0;
+            for (int i = 0; i < count; i++) {
+                if (pending.size() == window)
+                    reached += write(pending.poll().get(), written++, out);
+                final long puzzleSeed = seed + i;
+                pending.add(pool.submit(() -> generate(puzzleSeed)));
+            }
+            while (!pending.isEmpty())
+                reached += write(pending.poll().get(), written++, out);
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error while writing the puzzles into " + filePath, e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating the puzzles", e);
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException("The generation of a puzzle failed", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return reached;
+    }
+
+
+    /**
+     * Write one puzzle in the {@code Grid:} format.
+     * @param puzzle is the puzzle.
+     * @param index is the index of the puzzle in the file.
+     * @param out is the file.
+     * @return 1 if the puzzle reached the target clues, otherwise 0.
+     * @throws IOException if we can't write.
+     */
+    private int write(int[][] puzzle, int index, BufferedWriter out) throws IOException {
+        out.write("Grid:" + index);
+        out.newLine();
+        int filled = 0;
+        for (int[] row : puzzle) {
+            for (int cell : row) {
+                out.write(Character.forDigit(cell, 36));
+                if (cell != 0)
+                    filled++;
+            }
+        }
+        out.newLine();
+        return filled <= clues ? 1 : 0;
+    }
+
+
+    /**
+     * Fill a whole valid grid: the pattern grid shuffled with random changes that keep it valid.
+     * @param random is the random stream of the puzzle.
+     * @return the full grid.
+     */
+    private int[][] fillGrid(SplittableRandom random) {
+        int[] rows = shuffledLines(random);
+        int[] cols = shuffledLines(random);
+        int[] numbers = permutation(dimensions, random);
+        boolean transpose = random.nextBoolean();
+        int[][] grid = new int[dimensions][dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            for (int j = 0; j < dimensions; j++) {
+                final int r = rows[i], c = cols[j];
+                /* The pattern: every row is the previous row shifted, and every band is shifted by one more */
+                int pattern = (squareLength * (r % squareLength) + r / squareLength + c) % dimensions;
+                if (transpose)
+                    grid[j][i] = numbers[pattern] + 1;
+                else
+                    grid[i][j] = numbers[pattern] + 1;
+            }
+        }
+        return grid;
+    }
+
+
+    /**
+     * Shuffle the lines (rows or columns) of the pattern grid: the bands and the lines inside every band.
+     * @param random is the random stream of the puzzle.
+     * @return for every line of the new grid, the line of the pattern grid.
+     */
+    private int[] shuffledLines(SplittableRandom random) {
+        int[] bands = permutation(squareLength, random);
+        int[] lines = new int[dimensions];
+        for (int band = 0; band < squareLength; band++) {
+            int[] inside = permutation(squareLength, random);
+            for (int k = 0; k < squareLength; k++)
+                lines[band * squareLength + k] = bands[band] * squareLength + inside[k];
+        }
+        return lines;
+    }
+
+
+    /**
+     * Create a random permutation of the numbers 0 to length - 1 (Fisher-Yates shuffle).
+     * @param length is the amount of the numbers.
+     * @param random is the random stream of the puzzle.
+     * @return the permutation.
+     */
+    private static int[] permutation(int length, SplittableRandom random) {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++)
+            values[i] = i;
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+        return values;
+    }
+
+
+    /**
+     * Count the solutions of the puzzle, we stop at 2 (it's enough to know that it's NOT unique).
+     * @param grid is the puzzle, 0 for the empty cells, it isn't changed.
+     * @return 0, 1 or 2 (2 mean 2 or more), or -1 if the solver reached the {@link #searchLimit search limit}.
+     */
+    int countSolutions(int[][] grid) {
+        Solver solver = new Solver(grid);
+        int solutions = solver.count();
+        return solver.statesLeft < 0 ? -1 : solutions;
+    }
+
+
+    /**
+     * Small depth-first solver that count the solutions, the numbers of every row, column and square are bit masks,
+     * and we always continue with the empty cell that has the fewest options.
+     */
+    private class Solver {
+        /** The numbers in every row, column and square, bit k for the number k */
+        final int[] rowMask = new int[dimensions], colMask = new int[dimensions], squareMask = new int[dimensions];
+        /** The empty cells, row * N + col, the first {@link #emptyCount} are still empty */
+        final int[] empty = new int[dimensions * dimensions];
+        /** The amount of the empty cells */
+        int emptyCount;
+        /** The bit mask of all the numbers */
+        final int all = ((1 << dimensions) - 1) << 1;
+        /** The states that we can still visit */
+        int statesLeft = searchLimit;
+
+        Solver(int[][] grid) {
+            for (int i = 0; i < dimensions; i++) {
+                for (int j = 0; j < dimensions; j++) {
+                    if (grid[i][j] == 0)
+                        empty[emptyCount++] = i * dimensions + j;
+                    else
+                        toggle(i, j, grid[i][j]);
+                }
+            }
+        }
+
+        void toggle(int row, int col, int num) {
+            rowMask[row] ^= 1 << num;
+            colMask[col] ^= 1 << num;
+            squareMask[(row / squareLength) * squareLength + col / squareLength] ^= 1 << num;
+        }
+
+        int options(int cell) {
+            final int row = cell / dimensions, col = cell % dimensions;
+            return all & ~(rowMask[row] | colMask[col]
+                    | squareMask[(row / squareLength) * squareLength + col / squareLength]);
+        }
+
+        int count() {
+            if (emptyCount == 0)
+                return 1;
+            if (--statesLeft < 0)
+                return 2;
+            /* The empty cell with the fewest options */
+            int best = -1, bestOptions = 0, fewest = Integer.MAX_VALUE;
+            for (int k = 0; k < emptyCount; k++) {
+                int options = options(empty[k]);
+                int amount = Integer.bitCount(options);
+                if (amount < fewest) {
+                    fewest = amount;
+                    best = k;
+                    bestOptions = options;
+                    if (amount <= 1)
+                        break;
+                }
+            }
+            if (fewest == 0)
+                return 0;
+            final int cell = empty[best];
+            empty[best] = empty[--emptyCount];
+            empty[emptyCount] = cell;
+            final int row = cell / dimensions, col = cell % dimensions;
+            int solutions = 0;
+            for (int options = bestOptions; options != 0 && solutions < 2; options &= options - 1) {
+                int num = Integer.numberOfTrailingZeros(options);
+                toggle(row, col, num);
+                solutions += count();
+                toggle(row, col, num);
+            }
+            empty[emptyCount] = empty[best];
+            empty[best] = cell;
+            emptyCount++;
+            return Math.min(solutions, 2);
+        }
+    }
+
+
+    /**
+     * Generate a file of puzzles with the settings below.
+     * @param args are NOT used.
+     */
+    public static void main(String[] args) {
+
+        /* Sudoku dimensions, 9, 16 or 25*/
+        int sudokuDimensions = 9;
+
+        /* Target clues, the amount of the filled cells that we try to reach, the puzzles are always unique,
+        so a puzzle can have more clues if no clue can be removed*/
+        int targetClues = 26;
+
+        /* Search limit, the max states of one uniqueness check, a check that didn't finish keep the clue*/
+        int searchLimit = 100000;
+
+        /* Amount of the puzzles, and the seed of the first puzzle (the puzzle i has the seed + i)*/
+        int puzzles = 10000;
+        long seed = 1;
+
+        /* Threads, the amount of the threads that generate the puzzles*/
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        /* File path, the puzzles are written into this file in the Grid: format*/
+        String filePath = "boards/generated.txt";
+
+        long start = System.nanoTime();
+        int reached = new PuzzleGenerator(sudokuDimensions, targetClues, searchLimit)
+                .generate(filePath, puzzles, seed, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(puzzles + " puzzles written into " + filePath + " in " + seconds + " seconds ("
+                + puzzles / seconds + " puzzles per second), " + reached + " of them reached " + targetClues
+                + " clues");
+    }
+}
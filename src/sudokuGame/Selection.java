@@ -1,19 +1,24 @@
 package sudokuGame;
 
+import java.util.SplittableRandom;
+
 /**
  * {@code Selection} interface represent the abstract methodology that we decide
  * to apply crossover (matting) or mutate, so different classes can implement
  * different methodologies.
+ * All the random decisions are drawn from the random stream that the caller gave, and never
+ * from a shared random instance, so the same stream (the same seed) always reproduce the same individuals.
  */
 public interface Selection {
 
     /**
      * This method represent an abstract methodology that we evaluate the player (individual).
      * @param pop is the collection of the players (population).
+     * @param random is the random stream that we draw the decisions from.
      * @return a new random evaluate player (individual), we apply (maybe) on him
      * crossover and mutation.
      */
-	Individual reproduce(Individual[] pop);
+	Individual reproduce(Individual[] pop, SplittableRandom random);
 
 
     /**
@@ -22,10 +27,11 @@ public interface Selection {
      * @param pop is the collection of the players (population).
      * @param p1 is the player (individual) that we apply to him crossover
      *           with another player.
+     * @param random is the random stream that we draw the decisions from.
      * @return a new evaluate player (individual), we apply (maybe) on him
      * crossover and mutation.
      */
-	Individual reproduce(Individual[] pop, Individual p1);
+	Individual reproduce(Individual[] pop, Individual p1, SplittableRandom random);
 
 
     /**
@@ -59,4 +65,25 @@ public interface Selection {
      */
 	double getGoodPopulationPercent();
 
+
+    /**
+     * Tell if the population should prefer smaller trees (parsimony), so the individuals with
+     * the same fitness are sorted by their tree size, and the cheaper ones are consider better.
+     * @return true if the individuals with the same fitness are sorted by their tree size.
+     */
+	default boolean isParsimonious() {
+		return false;
+	}
+
+
+    /**
+     * Tell if the selection need the population sorted from the best to the worst individual.
+     * If it's NOT, the {@link Population} skip the full sort and only put the best individual first
+     * and the worst individual last.
+     * @return true if the selection need the whole population sorted.
+     */
+	default boolean needsSortedPopulation() {
+		return true;
+	}
+
 }
@@ -0,0 +1,92 @@
+package sudokuGame;
+
+/**
+ * {@code StagnationPolicy} decide when the evolution is stuck in a plateau, and we should
+ * restart a part of the population instead of spending more generations on a converged population.
+ *
+ * <p>The evolution is stuck if in the last {@link #plateauGenerations plateauGenerations} generations
+ * NOT the best fitness and NOT the average fitness got better than the best we saw.
+ * Then the {@link Evolution} keep the {@link #keepFraction elite} of the population and regenerate
+ * the rest randomly ({@link Population#restart(double)}), at most {@link #maxRestarts maxRestarts} times.
+ * @see Evolution
+ * @see Population#restart(double)
+ */
+public class StagnationPolicy {
+
+    /** The amount of the generations without improvement that consider as a plateau */
+    private final int plateauGenerations;
+
+    /** The percent of the best individuals that we keep in a restart */
+    private final double keepFraction;
+
+    /** The max amount of the restarts in the whole evolution (restart budget) */
+    private final int maxRestarts;
+
+    /** The best fitness that we saw since the last restart */
+    private int bestFitness = Integer.MAX_VALUE;
+
+    /** The best average fitness that we saw since the last restart */
+    private double bestAverage = Double.MAX_VALUE;
+
+    /** The amount of the generations since the last improvement */
+    private int stuckGenerations;
+
+    /** The amount of the restarts that we did */
+    private int restarts;
+
+
+    /**
+     * Initialize the policy parameters.
+     * @param plateauGenerations is the amount of the generations without improvement that consider as a plateau.
+     * @param keepFraction is the percent of the best individuals that we keep in a restart.
+     * @param maxRestarts is the max amount of the restarts in the whole evolution.
+     */
+    public StagnationPolicy(int plateauGenerations, double keepFraction, int maxRestarts) {
+        this.plateauGenerations = plateauGenerations;
+        this.keepFraction = keepFraction;
+        this.maxRestarts = maxRestarts;
+    }
+
+
+    /**
+     * Update the policy with the current generation, and decide if we should restart.
+     * After we decide to restart we start to count the plateau from the beginning.
+     * @param best is the best fitness in the current generation.
+     * @param average is the average fitness in the current generation.
+     * @return true if we should restart the population now, false otherwise.
+     */
+    boolean shouldRestart(int best, double average) {
+        if (best < bestFitness || average < bestAverage) {
+            bestFitness = Math.min(bestFitness, best);
+            bestAverage = Math.min(bestAverage, average);
+            stuckGenerations = 0;
+            return false;
+        }
+        if (++stuckGenerations < plateauGenerations || restarts >= maxRestarts)
+            return false;
+
+        restarts++;
+        stuckGenerations = 0;
+        bestFitness = Integer.MAX_VALUE;
+        bestAverage = Double.MAX_VALUE;
+        return true;
+    }
+
+
+    /**
+     * Returns the percent of the best individuals that we keep in a restart.
+     * @return the keep fraction.
+     */
+    double getKeepFraction() {
+        return keepFraction;
+    }
+
+
+    /**
+     * Returns the amount of the restarts that we did.
+     * @return the amount of the restarts.
+     */
+    public int getRestarts() {
+        return restarts;
+    }
+}
@@ -0,0 +1,328 @@
+package sudokuGame;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code SteadyStateEvolution} is an alternative engine to {@link Evolution}, without generations.
+ *
+ * <p>In the generational {@link Evolution} we create a whole new generation, and only when all the
+ * new individuals played we sort them and start the next generation, so when the individuals are
+ * evaluated in parallel, every generation wait for the slowest player.
+ * Here every worker thread do the same loop again and again: select parents, create a new individual
+ * with crossover and mutation ({@link Selection#reproduce(Individual[], SplittableRandom) reproduce}), let him play, and insert
+ * him into the population instead of the worst individual. No thread wait for the other threads,
+ * so all the cores are busy even when some players play much longer than the others.
+ *
+ * <p>The population is held in a concurrent sorted set ({@link ConcurrentSkipListSet}), sorted by
+ * the fitness (and the tree size if the selection is parsimonious). The parents are selected from a sorted
+ * snapshot of the set that we rebuild every {@link #refreshInterval refreshInterval} insertions,
+ * it's safe because we never change an individual after he entered the population.
+ *
+ * <p>We stop when an individual solve the board or after {@link #maxEvaluations maxEvaluations} new individuals,
+ * and we log a row into the report file every population size evaluations (like one generation).
+ * The screening, the checkpoints, the memetic search and the restarts of {@link Evolution} are NOT supported here,
+ * the {@link Driver} reject them.
+ *
+ * <p>Every worker has his own random stream, split from the {@link Population#getRandom() random stream}
+ * of the population before the workers start, so the workers never contend on one random instance.
+ * With one worker a run is reproducible for the same seed, with several workers the streams are
+ * reproducible but the order of the insertions depends on the scheduling of the threads, so the
+ * runs may differ.
+ * @see Evolution
+ * @see Population
+ */
+public class SteadyStateEvolution {
+
+    /** The population that we start from, in the end it hold the final individuals */
+    private final Population population;
+
+    /** The max amount of the new individuals that we evaluate before we quit trying */
+    private final int maxEvaluations;
+
+    /** The amount of the worker threads */
+    private final int threads;
+
+    /** We rebuild the snapshot of the parents every refreshInterval insertions */
+    private final int refreshInterval;
+
+    /** The individuals sorted by their fitness, the best is the first */
+    private final ConcurrentSkipListSet<Ranked> ranking = new ConcurrentSkipListSet<>();
+
+    /** The sequence number of the inserted individuals, we use it to break the ties in the ranking */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** The amount of the new individuals that we started to evaluate */
+    private final AtomicInteger evaluations = new AtomicInteger();
+
+    /** The amount of the insertions since we rebuild the snapshot */
+    private final AtomicInteger sinceRefresh = new AtomicInteger();
+
+    /** Sorted snapshot of the individuals, the workers select the parents from it */
+    private volatile Individual[] snapshot;
+
+    /** True when one of the individuals solved the board */
+    private volatile boolean solved;
+
+    /** The best individuals of all the runs that share it, null mean no hall of fame */
+    private HallOfFame hallOfFame;
+
+    /** The time that we started to evolve, we use it to log the evaluations per second */
+    private long startTime;
+
+    /** We use it to logging the evolution progress into report file */
+    private CSV_Writer reportGenerator;
+
+    /** Print the progress and the result, false when only the result matter (like the runs of a benchmark) */
+    private boolean verbose = true;
+
+    /** Write the report file, false when the file is NOT needed (like the runs of a benchmark) */
+    private boolean reporting = true;
+
+
+    /**
+     * One individual in the {@link #ranking ranking}, with the keys that we sort by.
+     */
+    private static class Ranked implements Comparable<Ranked> {
+        /** The individual, he is already evaluated */
+        final Individual individual;
+        /** The fitness of the individual */
+        final int fitness;
+        /** The tree size of the individual, 0 if we don't prefer smaller trees */
+        final int size;
+        /** Unique number, so individuals with the same fitness and size are NOT equal */
+        final long id;
+
+        Ranked(Individual individual, boolean parsimonious, long id) {
+            this.individual = individual;
+            this.fitness = individual.getFitness();
+            this.size = parsimonious ? individual.getSize() : 0;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Ranked other) {
+            if (fitness != other.fitness)
+                return Integer.compare(fitness, other.fitness);
+            if (size != other.size)
+                return Integer.compare(size, other.size);
+            return Long.compare(id, other.id);
+        }
+    }
+
+
+    /**
+     * Initialize the engine.
+     * @param population is the first population, it's already evaluated and sorted.
+     * @param maxEvaluations is the max amount of the new individuals that we evaluate before we quit trying.
+     * @param threads is the amount of the worker threads.
+     */
+    public SteadyStateEvolution(Population population, int maxEvaluations, int threads) {
+        this.population = population;
+        this.maxEvaluations = maxEvaluations;
+        this.threads = Math.max(1, threads);
+        this.refreshInterval = Math.max(1, population.getPopulationSize() / 10);
+    }
+
+
+    /**
+     * Set the hall of fame that the workers offer every new individual, it can be shared with other runs,
+     * and if one of them solved the board the workers stop.
+     * @param hallOfFame is the shared hall of fame, null mean no hall of fame.
+     */
+    public void setHallOfFame(HallOfFame hallOfFame) {
+        this.hallOfFame = hallOfFame;
+    }
+
+
+    /**
+     * Decide if we print the progress and the result.
+     * @param verbose is true for printing the best fitness while we evolve and the best individual in the end.
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+
+    /**
+     * Decide if we write the report file, a benchmark turn it off so the disk isn't part of the measured time.
+     * @param reporting is true for writing the report file into the reports directory.
+     */
+    public void setReporting(boolean reporting) {
+        this.reporting = reporting;
+    }
+
+
+    /**
+     * Get the amount of the new individuals that we created (every reproduction is counted,
+     * like in the {@link #maxEvaluations maxEvaluations} budget).
+     * @return the amount of the new individuals, at most maxEvaluations.
+     */
+    public int getEvaluations() {
+        return Math.min(evaluations.get(), maxEvaluations);
+    }
+
+
+    /**
+     * Start the worker threads and wait until one of them solve the board, or until we evaluated
+     * {@link #maxEvaluations maxEvaluations} new individuals, or until another run that share the
+     * {@link #hallOfFame hall of fame} solved the board.
+     * In the end the {@link #population population} hold the final individuals sorted, we print the best one
+     * and save the best individuals into the library of the population, if it has one.
+     */
+    public void evolve() {
+        final boolean parsimonious = population.getSelection().isParsimonious();
+        for (Individual individual : population.individuals)
+            ranking.add(new Ranked(individual, parsimonious, sequence.getAndIncrement()));
+        refreshSnapshot();
+        if (hallOfFame != null)
+            hallOfFame.offerAll(snapshot);
+        solved = snapshot[0].isIdeal();
+        if (reporting)
+            createReportFile();
+        startTime = System.nanoTime();
+        writeProgressData(0);
+
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final SplittableRandom random = population.getRandom().split();
+            workers[i] = new Thread(() -> work(parsimonious, random), "steady-state-worker-" + i);
+        }
+        for (Thread worker : workers)
+            worker.start();
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                solved = true;
+            }
+        }
+
+        refreshSnapshot();
+        population.setIndividuals(snapshot);
+        population.saveBestToLibrary();
+        if (!verbose)
+            return;
+        if (population.getBest().isIdeal())
+            System.out.println("Solution: \n" + population.getBest());
+        else
+            System.out.println("Best attempt: \n" + population.getBest());
+    }
+
+
+    /**
+     * The loop of one worker thread: create a new individual from the current snapshot, let him play,
+     * insert him into the ranking and remove the worst individual (it could be the new one).
+     * Every reproduction is counted in the {@link #maxEvaluations maxEvaluations} budget,
+     * even if it returned one of the parents without change (and then we don't insert it again).
+     * @param parsimonious is true if we sort the individuals with the same fitness by their tree size.
+     * @param random is the random stream of the worker, only this worker use it.
+     */
+    private void work(boolean parsimonious, SplittableRandom random) {
+        final Selection selection = population.getSelection();
+        final int popSize = population.getPopulationSize();
+        int evaluation;
+        boolean solvedByMe = false;
+        while (!solved && (evaluation = evaluations.incrementAndGet()) <= maxEvaluations) {
+            if (hallOfFame != null && hallOfFame.isSolved()) {
+                solved = true;
+                break;
+            }
+            Individual child = selection.reproduce(snapshot, random);
+            /* If there was no crossover and no mutation the child is one of the parents, nothing new to insert */
+            if (!child.isEvaluated()) {
+                /* The expensive part, the play, is done without any lock */
+                ranking.add(new Ranked(child, parsimonious, sequence.getAndIncrement()));
+                ranking.pollLast();
+                if (hallOfFame != null)
+                    hallOfFame.offer(child);
+
+                if (child.isIdeal())
+                    solved = solvedByMe = true;
+                if (sinceRefresh.incrementAndGet() >= refreshInterval) {
+                    sinceRefresh.set(0);
+                    refreshSnapshot();
+                }
+            }
+            if (evaluation % popSize == 0 || solvedByMe)
+                writeProgressData(evaluation);
+        }
+    }
+
+
+    /**
+     * Rebuild the sorted snapshot of the individuals from the ranking.
+     */
+    private void refreshSnapshot() {
+        snapshot = ranking.stream().map(ranked -> ranked.individual).toArray(Individual[]::new);
+    }
+
+
+    /**
+     * Create a report file with current time name (CurrentTime.csv),
+     * and append to him the parameters of the experiment and the headers.
+     */
+    private void createReportFile() {
+        reportGenerator = new CSV_Writer(new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss")
+                .format(new Date()) + ".csv");
+        reportGenerator.createCsvFile();
+        reportGenerator.appendCsvFile(new String[]{"Experiment Parameters:"});
+        reportGenerator.appendCsvFile(new String[]{"Steady State Evolution"});
+        reportGenerator.appendCsvFile(new String[]{"Original Empty Cells:",
+                Integer.toString(population.countEmptyCellInOriginalSudoku())});
+        reportGenerator.appendCsvFile(new String[]{"Population Size:",
+                Integer.toString(population.getPopulationSize())});
+        reportGenerator.appendCsvFile(new String[]{"Max Evaluations:", Integer.toString(maxEvaluations)});
+        reportGenerator.appendCsvFile(new String[]{"Worker Threads:", Integer.toString(threads)});
+        reportGenerator.appendCsvFile(new String[]{"Crossover Probability:",
+                Double.toString(population.getCrossoverProb())});
+        reportGenerator.appendCsvFile(new String[]{"Mutation Probability:",
+                Double.toString(population.getMutationProb())});
+        reportGenerator.appendCsvFile(new String[]{"Percent of good individuals from population:",
+                Double.toString(population.getGoodPopulationPercent())});
+        /* Just add a line separator */
+        reportGenerator.appendCsvFile(new String[]{""});
+        reportGenerator.appendCsvFile(new String[]{"Evaluations", "Worst Individual Fitness",
+                "Best Individual Fitness", "Average Fitness", "Best Individual Tree - Prefix",
+                "Best Individual Tree - Infix", "Evaluations Per Second"});
+    }
+
+
+    /**
+     * Append the current state of the ranking into the report file, and print the best individual,
+     * if we are {@link #reporting reporting} and {@link #verbose verbose}.
+     * Several workers can call it together, so we synchronize the writing.
+     * @param evaluation is the amount of the new individuals that we evaluated until now.
+     */
+    private synchronized void writeProgressData(int evaluation) {
+        if (!reporting && !verbose)
+            return;
+        Individual best = ranking.first().individual;
+        double sum = 0;
+        int count = 0, worst = 0;
+        for (Ranked ranked : ranking) {
+            sum += ranked.fitness;
+            worst = ranked.fitness;
+            count++;
+        }
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        if (reporting)
+            reportGenerator.appendCsvFile(new String[]{
+                    Integer.toString(evaluation),
+                    Integer.toString(worst),
+                    Integer.toString(best.getFitness()),
+                    Double.toString(sum / count),
+                    best.treeAsPrefixExpression(),
+                    best.treeAsInfixExpression(),
+                    Double.toString(seconds > 0 ? evaluation / seconds : 0)});
+        if (verbose)
+            System.out.println("Evaluations " + evaluation + ": best fitness " + best.getFitness()
+                    + ", average fitness " + sum / count + "\n");
+    }
+}
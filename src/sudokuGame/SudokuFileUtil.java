@@ -1,24 +1,21 @@
 package sudokuGame;
 
 import java.io.*;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * {@code SudokuFileUtil} class is responsible to load the sudoku board from a file,
  * into a 2D array. In other words this class is represent the board sudoku.
  * So this class receive the file path and the sudoku dimensions and can
  * load any sudoku board from this file with :
- * {@link #loadSudoku(int)} {@link #loadSudoku()}
- * {@link #loadPrintSudoku(int)} {@link #loadPrintSudoku()} methods.
+ * {@link #loadSudoku(int)} {@link #loadSudoku(SplittableRandom)}
+ * {@link #loadPrintSudoku(int)} {@link #loadPrintSudoku(SplittableRandom)} methods.
  * The sudoku dimensions should be NxN when sqrt(N) is a natural number.
  * @author Abedalrhman Nsasra
  * @version 1.0
  */
 public class SudokuFileUtil {
 
-    /** We need it to load a random sudoku from the gaven file*/
-    private static Random rnd = new Random();
-
     /** The path of the file that contain sudoku boards*/
     private final String filePath;
 
@@ -132,10 +129,11 @@ public class SudokuFileUtil {
 
     /**
      * Load a random sudoku board from the gaven file.
+     * @param random is the random stream that we draw the board index from, a seeded stream always load the same board.
      * @return 2D array the reparent the loaded sudoku board.
      */
-    public int[][] loadSudoku() {
-        int randomIndex = rnd.nextInt(boardsAmount);
+    public int[][] loadSudoku(SplittableRandom random) {
+        int randomIndex = random.nextInt(boardsAmount);
         return loadSudoku(randomIndex);
     }
 
@@ -160,10 +158,11 @@ public class SudokuFileUtil {
     /**
      * Load a random sudoku board from the gaven file,
      * then print it.
+     * @param random is the random stream that we draw the board index from.
      * @return 2D array the reparent the loaded sudoku board.
      */
-    public int[][] loadPrintSudoku() {
-        loadSudoku();
+    public int[][] loadPrintSudoku(SplittableRandom random) {
+        loadSudoku(random);
         printSudoku();
         return board;
     }
@@ -208,6 +207,15 @@ public class SudokuFileUtil {
     }
 
 
+    /**
+     * Get the amount of the boards that the file contain.
+     * @return the amount of the boards.
+     */
+    public int getBoardsAmount() {
+        return boardsAmount;
+    }
+
+
     /**
      * Create a string that reparent the loaded sudoku board.
      * @return {@code String} that reparent the loaded sudoku board
@@ -54,6 +54,30 @@ public class Terminal extends TerminalOrPrimitive {
     }
 
 
+    /**
+     * Return the value of the method with name {@link #operationName operationName} from the features
+     * of the board state if they hold it, otherwise call the method like
+     * {@link #run(int, int, int, int[][], Hashtable[][]) run}. The value is exactly the same.
+     * @param row The index of the row in the Sudoku board.
+     * @param col The index of the column in the Sudoku board.
+     * @param key One of the options that can be inserted in [row,col] in the board without conflict.
+     * @param board Reference to the Sudoku board matrix.
+     * @param gradeBoard Reference to matrix of hash tables of the options and their grades.
+     * @param features the features of the board state, null if we don't have them.
+     * @return the number that the method with name {@link #operationName operationName} is returned.
+     */
+	@Override
+	double run(final int row, final int col, final int key, final int[][] board,
+               final Hashtable<Integer,Double> [][] gradeBoard, final BoardFeatures features) {
+		if (features != null) {
+			int value = features.getFeature(operationName, row, col, key);
+			if (value >= 0)
+				return (double) value;
+		}
+		return run(row, col, key, board, gradeBoard);
+	}
+
+
     /**
      * Call the method with name {@link #operationName operationName} with the parameters that received,
      * and return the number that method is returned.
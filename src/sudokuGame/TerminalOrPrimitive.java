@@ -65,6 +65,25 @@ public abstract class TerminalOrPrimitive implements Cloneable{
 	abstract double run(final int row, final int col, final int key, final int[][] board
 			, final Hashtable<Integer,Double> [][]  gradeBoard);
 
+
+    /**
+     * Calculate the Tree-based genetic programing like {@link #run(int, int, int, int[][], Hashtable[][]) run},
+     * with the features of the current board state, so the {@code Terminal} instances can read them instead
+     * of scanning the board. The result is exactly the same.
+     * @param row The index of the row in the Sudoku board.
+     * @param col The index of the column in the Sudoku board.
+     * @param key One of the options that can be inserted in [row,col] in the board without conflict.
+     * @param board Reference to the Sudoku board matrix.
+     * @param gradeBoard Reference to matrix of hash tables of the options and their grades.
+     * @param features the features of the board state, null if we don't have them.
+     * @return a grade that represent how much good the key parameter as solution in [row,col] index in Sudoku board.
+     * @see BoardFeatureCache
+     */
+	double run(final int row, final int col, final int key, final int[][] board
+			, final Hashtable<Integer,Double> [][]  gradeBoard, final BoardFeatures features) {
+		return run(row, col, key, board, gradeBoard);
+	}
+
 	/**
 	 * Constructor that initialize the class members.
 	 * @param nodeType String that determined if the T value in {@code Node} is a Terminal Or Primitive,
@@ -0,0 +1,313 @@
+package sudokuGame;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * {@code TimeToSolutionBenchmark} measure the whole application, like {@link Driver} run it (load the board,
+ * create the first population, evolve), on every board of a boards file, several times each.
+ * Every run call the same {@link Driver#evolve(int[][], SplittableRandom, PopulationCheckpoint, boolean) pipeline}
+ * as the application with the gaven {@link Driver settings}, so the screening, the adaptive rates, the local search,
+ * the hall of fame, the restarts and the tree limits are measured exactly like they run.
+ * For every run we record the wall time, the generations, the evaluations (the individuals that played)
+ * and if the board was solved, and in the end we summarize all the runs: the success rate, the 50th, 90th and 99th
+ * percentiles of the wall time, the generations and the evaluations, and the solved puzzles per hour.
+ *
+ * <p>The runs are executed one after another (every run use all the cores for its evaluations, like {@link Driver}),
+ * so the runs don't disturb each other and the wall time of a run is the real time of one puzzle.
+ * Before the measured runs we make {@link #warmupRuns warmup runs} (the JIT compile the code and the results
+ * are thrown), and we collect the garbage between the runs, outside of the measured time.
+ * The repetition r of every board use the seed + r, so the benchmark always evolve the same populations
+ * and two versions of the code can be compared (as long as they draw the same random numbers).
+ *
+ * <p>The puzzles per hour are the solved puzzles divided by the sum of the wall times, the throughput of one machine
+ * that solve one puzzle after another. The runs don't print and don't write reports, so the console and the disk
+ * aren't part of the measured time, only the summary is printed and written into a report.
+ * @see Driver
+ * @see MicroBenchmark
+ */
+public class TimeToSolutionBenchmark {
+
+    /** The path of the file that contain the sudoku boards */
+    private final String filePath;
+
+    /** The dimensions of the boards */
+    private final int sudokuDimensions;
+
+    /** The amount of the runs of every board */
+    private final int repetitions;
+
+    /** The amount of the runs that we throw before we measure, on the first board */
+    private final int warmupRuns;
+
+    /** The seed of the first repetition, the repetition r use the seed + r */
+    private final long seed;
+
+    /** The settings of the evolution, like in {@link Driver} */
+    private final Driver settings;
+
+
+    /**
+     * The result of one run.
+     */
+    private static class Result {
+        /** The index of the board in the file */
+        final int board;
+        /** True if the run solved the board */
+        final boolean solved;
+        /** The amount of the generations that the run played */
+        final int generations;
+        /** The amount of the individuals that played in the run */
+        final long evaluations;
+        /** The wall time of the run, in milliseconds */
+        final double millis;
+
+        Result(int board, boolean solved, int generations, long evaluations, double millis) {
+            this.board = board;
+            this.solved = solved;
+            this.generations = generations;
+            this.evaluations = evaluations;
+            this.millis = millis;
+        }
+    }
+
+
+    /**
+     * Initialize the benchmark.
+     * @param filePath is the path of the file that contain the sudoku boards, we run all of them.
+     * @param sudokuDimensions is the dimensions of the boards.
+     * @param repetitions is the amount of the runs of every board.
+     * @param warmupRuns is the amount of the runs that we throw before we measure.
+     * @param seed is the seed of the first repetition, the repetition r use the seed + r.
+     * @param settings is the settings of the evolution, the benchmark own them from now and turn off
+     *                 their printing and their reports. Their board file and seed are NOT used.
+     * @throws RuntimeException if the repetitions are less than 1.
+     */
+    public TimeToSolutionBenchmark(String filePath, int sudokuDimensions, int repetitions, int warmupRuns, long seed,
+                                   Driver settings) {
+        if (repetitions < 1)
+            throw new RuntimeException("The benchmark must run every board at least once");
+        this.filePath = filePath;
+        this.sudokuDimensions = sudokuDimensions;
+        this.repetitions = repetitions;
+        this.warmupRuns = Math.max(0, warmupRuns);
+        this.seed = seed;
+        this.settings = settings;
+        settings.verbose = false;
+        settings.reports = false;
+    }
+
+
+    /**
+     * Run all the boards of the file, {@link #repetitions repetitions} times each, and summarize the runs.
+     * @return the summary lines, the same lines that are written into the summary report.
+     */
+    public List<String> run() {
+        final SudokuFileUtil fileUtil = new SudokuFileUtil(filePath, sudokuDimensions);
+        final int boards = fileUtil.getBoardsAmount();
+        if (boards == 0)
+            throw new RuntimeException("There are no boards in " + filePath);
+        final String benchmarkName = "tts_" + new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss").format(new Date());
+
+        for (int i = 0; i < warmupRuns; i++)
+            runOnce(0, copy(fileUtil.loadSudoku(0)), seed - 1 - i);
+
+        List<Result> results = new ArrayList<>(boards * repetitions);
+        for (int board = 0; board < boards; board++) {
+            final int[][] loaded = copy(fileUtil.loadSudoku(board));
+            for (int r = 0; r < repetitions; r++) {
+                /* The garbage of the last run is collected before we start the clock */
+                System.gc();
+                Result result = runOnce(board, copy(loaded), seed + r);
+                results.add(result);
+                System.out.println("Board " + board + " repetition " + r + (result.solved ? " solved in "
+                        : " NOT solved in ") + result.generations + " generations, " + result.evaluations
+                        + " evaluations, " + result.millis + " ms");
+            }
+        }
+        return summarize(results, boards, benchmarkName);
+    }
+
+
+    /**
+     * Run the pipeline of {@link Driver} once: create the first population on the board and evolve it.
+     * @param boardIndex is the index of the board in the file.
+     * @param board is the board, the run own it.
+     * @param runSeed is the seed of the run.
+     * @return the result of the run.
+     */
+    private Result runOnce(int boardIndex, int[][] board, long runSeed) {
+        final long start = System.nanoTime();
+        Driver.Outcome outcome = settings.evolve(board, new SplittableRandom(runSeed), null, false);
+        return new Result(boardIndex, outcome.population.getBest().isIdeal(), outcome.generations,
+                outcome.evaluations, (System.nanoTime() - start) / 1e6);
+    }
+
+
+    /**
+     * Summarize the runs: a line for every board, and the distributions of all the runs.
+     * @param results is the results of all the runs.
+     * @param boards is the amount of the boards.
+     * @param benchmarkName is the prefix of the summary report name.
+     * @return the summary lines.
+     */
+    private List<String> summarize(List<Result> results, int boards, String benchmarkName) {
+        CSV_Writer report = new CSV_Writer(benchmarkName + "_summary.csv");
+        report.createCsvFile();
+        report.appendCsvFile(new String[]{"Boards File:", filePath});
+        report.appendCsvFile(new String[]{"Repetitions:", Integer.toString(repetitions)});
+        report.appendCsvFile(new String[]{"First Seed:", Long.toString(seed)});
+        report.appendCsvFile(new String[]{"Population Size:", Integer.toString(settings.popSize)});
+        report.appendCsvFile(new String[]{"Max Generations:", Integer.toString(settings.maxGenerations)});
+        report.appendCsvFile(new String[]{"Evaluation Threads:", Integer.toString(settings.evaluationThreads)});
+        report.appendCsvFile(new String[]{""});
+        List<String> lines = new ArrayList<>();
+
+        report.appendCsvFile(new String[]{"Board", "Success Rate", "Wall Time Median (ms)", "Generations Mean",
+                "Evaluations Mean"});
+        for (int board = 0; board < boards; board++) {
+            List<Result> boardResults = new ArrayList<>(repetitions);
+            for (Result result : results)
+                if (result.board == board)
+                    boardResults.add(result);
+            String[] line = {Integer.toString(board), Double.toString(successRate(boardResults)),
+                    Double.toString(ExperimentRunner.percentile(sorted(boardResults, "millis"), 0.5)),
+                    Double.toString(ExperimentRunner.mean(sorted(boardResults, "generations"))),
+                    Double.toString(ExperimentRunner.mean(sorted(boardResults, "evaluations")))};
+            report.appendCsvFile(line);
+        }
+        report.appendCsvFile(new String[]{""});
+
+        List<Result> solved = new ArrayList<>();
+        double totalMillis = 0;
+        for (Result result : results) {
+            totalMillis += result.millis;
+            if (result.solved)
+                solved.add(result);
+        }
+        lines.add("Runs: " + results.size() + ", solved: " + solved.size() + ", success rate: "
+                + successRate(results));
+        report.appendCsvFile(new String[]{"Measure", "p50", "p90", "p99", "Mean", "Max"});
+        addDistribution("Wall Time (ms)", sorted(results, "millis"), report, lines);
+        addDistribution("Generations", sorted(results, "generations"), report, lines);
+        addDistribution("Evaluations", sorted(results, "evaluations"), report, lines);
+        if (!solved.isEmpty()) {
+            addDistribution("Time To Solution (ms)", sorted(solved, "millis"), report, lines);
+            addDistribution("Generations To Solution", sorted(solved, "generations"), report, lines);
+        }
+        double puzzlesPerHour = totalMillis > 0 ? solved.size() / (totalMillis / 3600000.0) : 0;
+        report.appendCsvFile(new String[]{""});
+        report.appendCsvFile(new String[]{"Success Rate:", Double.toString(successRate(results))});
+        report.appendCsvFile(new String[]{"Puzzles Per Hour:", Double.toString(puzzlesPerHour)});
+        lines.add("Puzzles per hour: " + puzzlesPerHour);
+        return lines;
+    }
+
+
+    /**
+     * Add the percentiles of a measure to the report and to the summary lines.
+     * @param name is the name of the measure.
+     * @param values is the values of the measure, ascending.
+     * @param report is the summary report.
+     * @param lines is the summary lines.
+     */
+    private static void addDistribution(String name, double[] values, CSV_Writer report, List<String> lines) {
+        String[] line = {name,
+                Double.toString(ExperimentRunner.percentile(values, 0.5)),
+                Double.toString(ExperimentRunner.percentile(values, 0.9)),
+                Double.toString(ExperimentRunner.percentile(values, 0.99)),
+                Double.toString(ExperimentRunner.mean(values)),
+                Double.toString(values[values.length - 1])};
+        report.appendCsvFile(line);
+        lines.add(name + ": p50 " + line[1] + ", p90 " + line[2] + ", p99 " + line[3] + ", mean " + line[4]
+                + ", max " + line[5]);
+    }
+
+
+    /**
+     * Get a measure of the results, sorted.
+     * @param results is the results.
+     * @param measure is the name of the measure: millis, generations or evaluations.
+     * @return the values of the measure, ascending.
+     */
+    private static double[] sorted(List<Result> results, String measure) {
+        double[] values = new double[results.size()];
+        for (int i = 0; i < values.length; i++) {
+            Result result = results.get(i);
+            switch (measure) {
+                case "millis":
+                    values[i] = result.millis;
+                    break;
+                case "generations":
+                    values[i] = result.generations;
+                    break;
+                case "evaluations":
+                    values[i] = result.evaluations;
+                    break;
+                default:
+                    throw new RuntimeException("Unknown measure " + measure);
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+
+    /**
+     * Compute the part of the runs that solved their board.
+     * @param results is the results.
+     * @return the success rate, between 0 and 1.
+     */
+    private static double successRate(List<Result> results) {
+        int solved = 0;
+        for (Result result : results)
+            if (result.solved)
+                solved++;
+        return results.isEmpty() ? 0 : (double) solved / results.size();
+    }
+
+
+    /**
+     * Copy a board.
+     * @param board is the board.
+     * @return a deep copy of the board.
+     */
+    private static int[][] copy(int[][] board) {
+        int[][] copy = new int[board.length][];
+        for (int i = 0; i < board.length; i++)
+            copy[i] = board[i].clone();
+        return copy;
+    }
+
+
+    /**
+     * Run the benchmark with the settings below.
+     * @param args are NOT used.
+     */
+    public static void main(String[] args) {
+
+        /* File path and sudoku dimensions, we run every board of the file*/
+        String filePath = "boards/realBoards.txt";
+        int sudokuDimensions = 9;
+
+        /* Repetitions of every board, and the warmup runs that we throw*/
+        int repetitions = 5;
+        int warmupRuns = 2;
+
+        /* Seed, the repetition r of every board use the seed + r*/
+        long seed = 1;
+
+        /* The settings of the evolution, the defaults of Driver, change the fields like in Driver
+        (for example settings.popSize = 200;)*/
+        Driver settings = new Driver();
+
+        TimeToSolutionBenchmark benchmark = new TimeToSolutionBenchmark(filePath, sudokuDimensions, repetitions,
+                warmupRuns, seed, settings);
+        for (String line : benchmark.run())
+            System.out.println(line);
+    }
+}
@@ -1,13 +1,17 @@
 package sudokuGame;
 
+import java.util.SplittableRandom;
+
 /**
  * {@code TournamentSelection} represent the methodology that we decide
  * to crossover (matting) or mutate.
  * In this class we determine the probability to apply crossover or mutate,
  * and the percent of the good population that we apply crossover with them,
  * and the methodology that we apply those operation in
- * {@link #reproduce(Individual[], Individual)}  {@link #reproduce(Individual[])}
+ * {@link #reproduce(Individual[], Individual, SplittableRandom)}  {@link #reproduce(Individual[], SplittableRandom)}
  * methods.
+ * By default we select uniformly from the good individuals of the sorted population, and with a
+ * {@link #setTournamentSize(int) tournament size} we run a real k-tournament that doesn't need the sort.
  * @author Abedalrhman Nsasra
  * @version 1.0
  * @see Selection
@@ -25,6 +29,15 @@ public class TournamentSelection implements Selection {
     /** is the percent of the population that we matting with it in crossover method*/
 	private final double goodPopulationPercent;
 
+    /** is true if the individuals with the same fitness are sorted by their tree size */
+	private boolean parsimonious;
+
+    /**
+     * is the amount of the individuals in a tournament, 0 mean that we select uniformly
+     * from the {@link #goodPopulationPercent percent} of the good individuals.
+     */
+	private int tournamentSize;
+
 
     /**
      * Initialize the class member:
@@ -40,6 +53,49 @@ public class TournamentSelection implements Selection {
 	}
 
 
+    /**
+     * Set if the individuals with the same fitness should be sorted by their tree size (parsimony),
+     * so we prefer to matting with the cheaper individuals.
+     * @param parsimonious is true if we prefer smaller trees between individuals with the same fitness.
+     */
+	public void setParsimonious(boolean parsimonious) {
+		this.parsimonious = parsimonious;
+	}
+
+
+    /**
+     * Tell if the individuals with the same fitness are sorted by their tree size.
+     * @return true if we prefer smaller trees between individuals with the same fitness.
+     */
+	@Override
+	public boolean isParsimonious() {
+		return parsimonious;
+	}
+
+
+    /**
+     * Set the amount of the individuals in a tournament. With tournament size k we select k random
+     * individuals from the whole population and take the best of them, so the selection doesn't need
+     * the population sorted, and the {@link #goodPopulationPercent good population percent} is ignored.
+     * With 0 we select uniformly from the percent of the good individuals of the sorted population.
+     * @param tournamentSize is the amount of the individuals in a tournament, 0 mean no tournament.
+     */
+	public void setTournamentSize(int tournamentSize) {
+		this.tournamentSize = tournamentSize;
+	}
+
+
+    /**
+     * Tell if the selection need the population sorted, we need it only when we select from the
+     * percent of the good individuals, a tournament doesn't need it.
+     * @return true if the tournament size is 0.
+     */
+	@Override
+	public boolean needsSortedPopulation() {
+		return tournamentSize <= 0;
+	}
+
+
     /**
      * Get the probability to apply mutation on any individual.
      * 0.3 is consider as a good choice.
@@ -82,27 +138,28 @@ public class TournamentSelection implements Selection {
     /**
      * This method represent the  methodology that we evaluate the player (individual).
      * Here we receive the player (individual) p1, and evaluate him with
-     * {@link Individual#crossover(Individual) crossover} and
-     * {@link Individual#mutate()} mutate} methods, and applying those methods
+     * {@link Individual#crossover(Individual, SplittableRandom) crossover} and
+     * {@link Individual#mutate(SplittableRandom) mutate} methods, and applying those methods
      * is probability that we determined in the constructor.
-     * Notice: we use {@link #select(Individual[]) select} method that select a
+     * Notice: we use {@link #select(Individual[], SplittableRandom) select} method that select a
      * random player from the {@link #goodPopulationPercent percent} of the good
      * players (individuals) with the best fitness in a matter to apply crossover
      * with them.
      * @param pop is the collection of the players (population).
      * @param p1 is the player (individual) that we apply to him crossover
      *           with another player.
+     * @param random is the random stream that we draw the decisions from.
      * @return a new evaluate player (individual), we apply (maybe) on him
      * crossover and mutation.
      */
-	public Individual reproduce(Individual[] pop, Individual p1)
+	public Individual reproduce(Individual[] pop, Individual p1, SplittableRandom random)
 	{
-		if (Math.random() < crossoverProb) {
-			Individual p2 = select(pop);
-			p1 = p1.crossover(p2);
+		if (random.nextDouble() < crossoverProb) {
+			Individual p2 = select(pop, random);
+			p1 = p1.crossover(p2, random);
 		}
-		if (Math.random() < mutationProb) {
-			p1 = p1.mutate();
+		if (random.nextDouble() < mutationProb) {
+			p1 = p1.mutate(random);
 		}
 		return p1;
 	}
@@ -113,24 +170,25 @@ public class TournamentSelection implements Selection {
      * Here we select a random player (from the percent of good players),
      * and apply (maybe) on him crossover with another random player,
      * and maybe apply on him mutation.
-     * Notice: we use {@link #select(Individual[]) select} method that select a
+     * Notice: we use {@link #select(Individual[], SplittableRandom) select} method that select a
      * random player from the {@link #goodPopulationPercent percent} of the good
      * players (individuals) with the best fitness in a matter to apply crossover
      * with them.
      * @param pop is the collection of the players (population).
+     * @param random is the random stream that we draw the decisions from.
      * @return a new random evaluate player (individual), we apply (maybe) on him
      * crossover and mutation.
      */
 	@Override
-	public Individual reproduce(Individual[] pop) {
-		Individual p1 = select(pop);
+	public Individual reproduce(Individual[] pop, SplittableRandom random) {
+		Individual p1 = select(pop, random);
 		
-		if (Math.random() < crossoverProb) {
-			Individual p2 = select(pop);
-			p1 = p1.crossover(p2);
+		if (random.nextDouble() < crossoverProb) {
+			Individual p2 = select(pop, random);
+			p1 = p1.crossover(p2, random);
 		}
-		if (Math.random() < mutationProb)
-			p1 = p1.mutate();
+		if (random.nextDouble() < mutationProb)
+			p1 = p1.mutate(random);
 		
 		return p1;
 	}
@@ -140,22 +198,49 @@ public class TournamentSelection implements Selection {
      * Select a random player from the {@link #goodPopulationPercent percent} of the good
      * players (individuals) with the best fitness in a matter to apply crossover
      * with them.
+     * If we have a {@link #tournamentSize tournament size} we select the best player
+     * of a {@link #tournament(Individual[], SplittableRandom) tournament} instead.
      * @param pop is the collection of the players (population).
+     * @param random is the random stream that we draw the player from.
      * @return a random player (individual) from the percent of the good players
      */
-	private Individual select(Individual[] pop) {
-		
-		return pop[randomIndex((int)(pop.length * goodPopulationPercent))];
+	protected Individual select(Individual[] pop, SplittableRandom random) {
+		if (tournamentSize > 0)
+			return tournament(pop, random);
+		return pop[randomIndex((int)(pop.length * goodPopulationPercent), random)];
+	}
+
+
+    /**
+     * Select {@link #tournamentSize tournamentSize} random players from the whole population
+     * (with repetition) and return the best of them, the one with the lowest fitness
+     * (and the smaller tree between equal fitness, if we are {@link #parsimonious parsimonious}).
+     * @param pop is the collection of the players (population), it doesn't need to be sorted.
+     * @param random is the random stream that we draw the players from.
+     * @return the winner of the tournament.
+     */
+	private Individual tournament(Individual[] pop, SplittableRandom random) {
+		Individual winner = pop[randomIndex(pop.length, random)];
+		for (int i = 1;  i < tournamentSize;  ++i) {
+			Individual rival = pop[randomIndex(pop.length, random)];
+			int compare = Integer.compare(rival.getFitness(), winner.getFitness());
+			if (compare == 0 && parsimonious)
+				compare = Integer.compare(rival.getSize(), winner.getSize());
+			if (compare < 0)
+				winner = rival;
+		}
+		return winner;
 	}
 
 
 
     /**
-     * Get a random number between 0 to max, included both.
+     * Get a random number between 0 (inclusive) to max (exclusive), 0 if max is NOT positive.
      * @param max is the top range of the random numbers that we want to get.
+     * @param random is the random stream that we draw the number from.
      * @return a random number between 0 to max
      */
-	private int randomIndex(int max) {
-		return (int)(Math.random() * max);
+	protected int randomIndex(int max, SplittableRandom random) {
+		return max > 0 ? random.nextInt(max) : 0;
 	}
 }
@@ -0,0 +1,81 @@
+package sudokuGame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@code TreeAnalyzer} find on which parameters of the
+ * {@link TerminalOrPrimitive#run(int, int, int, int[][], java.util.Hashtable[][]) run} method
+ * the grade of a tree depends, without running the tree.
+ *
+ * <p>Some terminals depend only on the cell (for example {@code countEmptyCellInRow}), and the others
+ * depend only on the number (key) that we grade (for example {@code numOfOptionsToAppearInBoard}).
+ * A tree that built only from cell terminals give the same grade to all the options of a cell,
+ * and a tree that built only from key terminals give the same grade to a number in all the cells,
+ * so the {@link BoardIndividual} can run the tree once for every cell or once for every number
+ * instead of once for every option, and get exactly the same gradeboard.
+ * A tree without terminals at all (only {@link Constant constants} after the
+ * {@link TreeSimplifier simplification}) give the same grade to everything.
+ * @see BoardIndividual#evaluateGradeboard()
+ * @see Terminal
+ */
+class TreeAnalyzer {
+
+    /** The grade of the tree depends on the cell (row and column) */
+    static final int DEPENDS_ON_CELL = 1;
+
+    /** The grade of the tree depends on the number (key) that we grade */
+    static final int DEPENDS_ON_KEY = 2;
+
+    /** The terminals that depend only on the cell, NOT on the key */
+    private static final Set<String> CELL_TERMINALS = new HashSet<>(Arrays.asList(
+            "countEmptyCellInRow",
+            "countEmptyCellInCol",
+            "countEmptyCellInSquare",
+            "numOfOptionsInCell"));
+
+    /** The terminals that depend only on the key, NOT on the cell */
+    private static final Set<String> KEY_TERMINALS = new HashSet<>(Arrays.asList(
+            "numOfOptionsToAppearInBoard",
+            "countEmptyCellsInRowsContainsNum",
+            "countEmptyCellsInColsContainsNum",
+            "countEmptyCellsInSquareContainsNum",
+            "countEmptyCellsInRows_ThatNotContainsNum",
+            "countEmptyCellsInCols_ThatNotContainsNum",
+            "countEmptyCellsInSquare_ThatNotContainsNum"));
+
+
+    /**
+     * Find on which parameters the grade of the tree depends, in a recursive way.
+     * A terminal that we don't know is considered as depends on the cell and on the key.
+     * @param node is the node that we reach in the recursive calling.
+     * @return combination of {@link #DEPENDS_ON_CELL DEPENDS_ON_CELL} and {@link #DEPENDS_ON_KEY DEPENDS_ON_KEY},
+     * 0 if the grade of the tree is always the same.
+     */
+    static int findDependencies(Node<TerminalOrPrimitive> node) {
+        if (node == null)
+            return 0;
+        TerminalOrPrimitive value = node.getValue();
+        if (value instanceof Constant)
+            return 0;
+        if (value.isPrimitive())
+            return findDependencies(node.getLeft()) | findDependencies(node.getRight());
+        return findDependencies(value.getOperationName());
+    }
+
+
+    /**
+     * Find on which parameters the gaven terminal depends.
+     * A terminal that we don't know is considered as depends on the cell and on the key.
+     * @param terminalName is the function name of the terminal.
+     * @return combination of {@link #DEPENDS_ON_CELL DEPENDS_ON_CELL} and {@link #DEPENDS_ON_KEY DEPENDS_ON_KEY}.
+     */
+    static int findDependencies(String terminalName) {
+        if (CELL_TERMINALS.contains(terminalName))
+            return DEPENDS_ON_CELL;
+        if (KEY_TERMINALS.contains(terminalName))
+            return DEPENDS_ON_KEY;
+        return DEPENDS_ON_CELL | DEPENDS_ON_KEY;
+    }
+}
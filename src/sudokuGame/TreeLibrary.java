@@ -0,0 +1,333 @@
+package sudokuGame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code TreeLibrary} is a persistent library of trees (tree-based GP) that had good fitness
+ * or solved a sudoku board in previous runs, so a new {@link Population} can start with
+ * a part of the individuals that already known as good heuristics, instead of only random trees.
+ *
+ * <p>The library is a directory that hold one file for every board size (for example 9x9.lib),
+ * so the trees are indexed by the board size, and every tree is saved with the features of the board
+ * that it played on: the amount of the empty cells, and the amount of the empty cells that have only
+ * one option (naked singles), that's tell us how hard the board is.
+ * When we seed a population we prefer the trees of the boards with the nearest features,
+ * and then the trees with the best relative fitness (the fitness divided by the empty cells of their board),
+ * so a tree from an easy board don't win only because his board had less empty cells.
+ *
+ * <p>Every file is a small binary file: a names table and then the entries, every entry is the features,
+ * the fitness, the height and the tree as one byte for every node, like in {@link PopulationCheckpoint}.
+ * We add only trees that filled at least one cell of their board, and we keep only
+ * the best {@link #maxEntries maxEntries} trees for every board size by their relative fitness.
+ * @see Population
+ * @see PopulationCheckpoint
+ */
+public class TreeLibrary {
+
+    /** The first bytes of every library file ("SGTL") */
+    private static final int MAGIC = 0x5347544C;
+
+    /** The version of the file format */
+    private static final int VERSION = 1;
+
+    /** The path of the library directory */
+    private final String directory;
+
+    /** The max amount of the trees that we keep for every board size */
+    private final int maxEntries;
+
+
+    /**
+     * One tree in the library, with the features of the board that it played on and his fitness there.
+     */
+    private static class Entry {
+        /** The amount of the empty cells in the board that the tree played on */
+        final int emptyCells;
+        /** The amount of the empty cells with only one option in the board that the tree played on */
+        final int singles;
+        /** The fitness of the tree on that board */
+        final int fitness;
+        /** The height of the tree */
+        final int height;
+        /** The root of the tree */
+        final Node<TerminalOrPrimitive> tree;
+        /** The tree as a string, we use it to avoid duplicate trees */
+        final String prefix;
+
+        Entry(int emptyCells, int singles, int fitness, int height, Node<TerminalOrPrimitive> tree, String prefix) {
+            this.emptyCells = emptyCells;
+            this.singles = singles;
+            this.fitness = fitness;
+            this.height = height;
+            this.tree = tree;
+            this.prefix = prefix;
+        }
+
+        /**
+         * Returns the fitness relative to the empty cells of the board, 0 is a solved board
+         * and 1 is a tree that didn't fill any cell, so we can compare trees from different boards.
+         * @return the part of the empty cells that the tree left empty.
+         */
+        double relativeFitness() {
+            return emptyCells == 0 ? 0 : (double) fitness / emptyCells;
+        }
+    }
+
+
+    /**
+     * Create a library in the gaven directory.
+     * @param directory is the path of the library directory.
+     * @param maxEntries is the max amount of the trees that we keep for every board size.
+     */
+    public TreeLibrary(String directory, int maxEntries) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+    }
+
+
+    /**
+     * Create individuals from the library trees for the board of the prototype.
+     * We take the trees of the same board size, sorted by the nearest board features and then by fitness,
+     * and we skip the trees that use primitives or terminals that NOT in the current sets
+     * ({@link Individual#operators operators} and {@link Individual#functions functions}).
+     * @param prototype is a prototype of the individuals, it hold the board that we want to solve.
+     * @param amount is the max amount of the individuals that we want.
+     * @return list of new individuals with the library trees, it could be less than amount (or empty).
+     */
+    synchronized List<Individual> seed(BoardIndividual prototype, int amount) {
+        final int[][] board = prototype.getOriginalSudoku();
+        final int emptyCells = Terminal.countEmptyCellInSudoku(board);
+        final int singles = countSingles(board);
+
+        List<Entry> entries = load(board.length);
+        entries.sort(Comparator.<Entry>comparingInt(e ->
+                Math.abs(e.emptyCells - emptyCells) + Math.abs(e.singles - singles))
+                .thenComparingDouble(Entry::relativeFitness));
+
+        List<Individual> seeds = new ArrayList<>(amount);
+        for (Entry entry : entries) {
+            if (seeds.size() >= amount)
+                break;
+            if (!usesOnlyCurrentSets(entry.tree))
+                continue;
+            Individual individual = prototype.clone();
+            individual.tree = entry.tree;
+            individual.setHeight(entry.height);
+            seeds.add(individual);
+        }
+        return seeds;
+    }
+
+
+    /**
+     * Add the individuals trees to the library with the features of their board, and save the library file.
+     * The individuals must be evaluated, we add only the individuals with exact fitness that filled
+     * at least one cell (fitness lower than the empty cells of the original board), we keep only the best
+     * {@link #maxEntries maxEntries} trees for every board size by their {@link Entry#relativeFitness relative fitness},
+     * and we don't add a tree that already exist for the same board features.
+     * @param individuals is the individuals that we want to add, they must play on the same board.
+     */
+    synchronized void add(List<Individual> individuals) {
+        if (individuals.isEmpty())
+            return;
+        final int[][] board = ((BoardIndividual) individuals.get(0)).getOriginalSudoku();
+        final int emptyCells = Terminal.countEmptyCellInSudoku(board);
+        final int singles = countSingles(board);
+
+        List<Entry> entries = load(board.length);
+        Set<String> known = new HashSet<>();
+        for (Entry entry : entries)
+            known.add(entry.emptyCells + ":" + entry.singles + ":" + entry.prefix);
+
+        boolean added = false;
+        for (Individual individual : individuals) {
+            if (!individual.isFitnessExact() || individual.getFitness() >= emptyCells)
+                continue;
+            String prefix = describe(individual.getTree());
+            if (known.add(emptyCells + ":" + singles + ":" + prefix)) {
+                entries.add(new Entry(emptyCells, singles, individual.getFitness(), individual.getHeight(),
+                        individual.getTree(), prefix));
+                added = true;
+            }
+        }
+        if (!added)
+            return;
+        entries.sort(Comparator.comparingDouble(Entry::relativeFitness));
+        if (entries.size() > maxEntries)
+            entries = new ArrayList<>(entries.subList(0, maxEntries));
+        save(board.length, entries);
+    }
+
+
+    /**
+     * Returns the library file of the gaven board size.
+     * @param dimensions is the board dimensions.
+     * @return the file that hold the trees of NxN boards.
+     */
+    private File fileOf(int dimensions) {
+        return new File(directory, dimensions + "x" + dimensions + ".lib");
+    }
+
+
+    /**
+     * Load all the entries of the gaven board size, if the file NOT exist we return an empty list.
+     * @param dimensions is the board dimensions.
+     * @return list of the entries in the library file.
+     */
+    private List<Entry> load(int dimensions) {
+        List<Entry> entries = new ArrayList<>();
+        File file = fileOf(dimensions);
+        if (!file.isFile())
+            return entries;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println(file + " is NOT a tree library file of this version");
+                return entries;
+            }
+            String[] names = PopulationCheckpoint.readNames(in);
+            int amount = in.readInt();
+            for (int i = 0; i < amount; i++) {
+                int emptyCells = in.readUnsignedShort();
+                int singles = in.readUnsignedShort();
+                int fitness = in.readUnsignedShort();
+                int height = in.readUnsignedByte();
+                Node<TerminalOrPrimitive> tree = PopulationCheckpoint.readTree(names, in);
+                entries.add(new Entry(emptyCells, singles, fitness, height, tree, describe(tree)));
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error while reading the tree library " + file);
+            e.printStackTrace();
+        }
+        return entries;
+    }
+
+
+    /**
+     * Save the entries of the gaven board size, into a temporary file and then move it over the library file.
+     * @param dimensions is the board dimensions.
+     * @param entries is the entries that we want to save.
+     */
+    private void save(int dimensions, List<Entry> entries) {
+        File file = fileOf(dimensions);
+        File tmp = new File(file.getPath() + ".tmp");
+        file.getAbsoluteFile().getParentFile().mkdirs();
+
+        Set<String> names = new LinkedHashSet<>();
+        for (Entry entry : entries)
+            collectNames(entry.tree, names);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            Map<String, Integer> nameIndex = PopulationCheckpoint.writeNames(new ArrayList<>(names), out);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeShort(entry.emptyCells);
+                out.writeShort(entry.singles);
+                out.writeShort(entry.fitness);
+                out.writeByte(entry.height);
+                PopulationCheckpoint.writeTree(entry.tree, nameIndex, out);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error while writing the tree library " + file);
+            e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            System.err.println("Error while moving the tree library " + file);
+            e.printStackTrace();
+        }
+    }
+
+
+    /**
+     * Build a string that represent the tree in prefix order, in a recursive way,
+     * we use it only to avoid duplicate trees in the library.
+     * @param node is the node that we reach in the recursive calling.
+     * @return a string that represent the tree.
+     */
+    private static String describe(Node<TerminalOrPrimitive> node) {
+        if (node.getLeft() == null)
+            return node.getValue().getOperationName();
+        return node.getValue().getOperationName() + "(" + describe(node.getLeft()) + ","
+                + describe(node.getRight()) + ")";
+    }
+
+
+    /**
+     * Collect all the primitive and terminal names in the tree, in a recursive way.
+     * @param node is the node that we reach in the recursive calling.
+     * @param names is the set that we collect the names into.
+     */
+    private static void collectNames(Node<TerminalOrPrimitive> node, Set<String> names) {
+        if (node == null)
+            return;
+        names.add(node.getValue().getOperationName());
+        collectNames(node.getLeft(), names);
+        collectNames(node.getRight(), names);
+    }
+
+
+    /**
+     * Check if the tree use only primitives and terminals from the current sets, in a recursive way.
+     * @param node is the node that we reach in the recursive calling.
+     * @return true if all the nodes are in the current sets, false otherwise.
+     */
+    private static boolean usesOnlyCurrentSets(Node<TerminalOrPrimitive> node) {
+        if (node == null)
+            return true;
+        TerminalOrPrimitive value = node.getValue();
+        if (value.isPrimitive() ? !Individual.operators.contains(value.getOperationName())
+                : !Individual.functions.contains(value.getOperationName()))
+            return false;
+        return usesOnlyCurrentSets(node.getLeft()) && usesOnlyCurrentSets(node.getRight());
+    }
+
+
+    /**
+     * Count the empty cells in the board that have only one option (naked singles),
+     * it's one of the features that tell us how hard the board is.
+     * @param board is the sudoku board.
+     * @return the amount of the empty cells with exactly one option.
+     */
+    static int countSingles(int[][] board) {
+        int singles = 0;
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
+                if (board[i][j] != 0)
+                    continue;
+                int options = 0;
+                for (int num = 1; num <= board.length && options < 2; num++) {
+                    if (!Terminal.existInRow(i, num, board) && !Terminal.existInCol(j, num, board)
+                            && !Terminal.existInSquare(i, j, num, board))
+                        options++;
+                }
+                if (options == 1)
+                    singles++;
+            }
+        }
+        return singles;
+    }
+}
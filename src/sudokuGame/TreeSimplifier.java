@@ -0,0 +1,251 @@
+package sudokuGame;
+
+/**
+ * {@code TreeSimplifier} rewrite a tree-based GP into an equivalent smaller tree, so the
+ * {@link Individual#run(int, int, int, int[][], java.util.Hashtable[][]) run} method that we call
+ * for every option in every empty cell in every step of the play become cheaper.
+ *
+ * <p>The evolved trees are full of redundant parts, for example {@code Minus(x, x)} is always 0
+ * (Minus is the absolute difference), {@code Maximum(x, x)} is x, and {@code div(x, 0)} is x
+ * (the division by zero return the left value). We simplify the tree from the leaves to the root,
+ * and fold every primitive that both his children are constants into a {@link Constant}.
+ *
+ * <p>The simplified tree must return exactly the same grade (the same double) as the original tree
+ * for every cell and number, otherwise the player could choose another cell and the fitness will change.
+ * So we use only identities that are exact for doubles with the semantics of {@link Primitive}.
+ * All the terminals are counts, so every value in the tree is NOT negative, but a deep tree could
+ * overflow to infinity (and then to NaN, for example {@code infinity - infinity}), and identities like
+ * {@code Minus(x, x) = 0} or {@code Multi(0, x) = 0} are wrong for infinity and NaN.
+ * So for every sub tree we calculate an upper bound of his values, and we use these identities
+ * only when the upper bound proves that the sub tree is always finite.
+ *
+ * <p>We never change the tree of the individual (the genome), the simplified tree is a new tree
+ * that we use only to evaluate the individual.
+ * @see Individual
+ * @see Constant
+ * @see Primitive
+ */
+class TreeSimplifier {
+
+    /** The max value that a double hold an exact integer, above it the integers are NOT exact */
+    private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+
+
+    /**
+     * Simplified sub tree with the bounds of his values, for every cell and number on the board.
+     */
+    private static class Bounds {
+        /** The root of the simplified sub tree */
+        final Node<TerminalOrPrimitive> node;
+        /** Upper bound of the values, infinity if the sub tree could be infinity or NaN */
+        final double max;
+        /** Lower bound of the values that are NOT zero, infinity if the sub tree is always zero */
+        final double minNonZero;
+        /** True if all the values are exact integers */
+        final boolean integral;
+
+        Bounds(Node<TerminalOrPrimitive> node, double max, double minNonZero, boolean integral) {
+            this.node = node;
+            this.max = Double.isNaN(max) ? Double.POSITIVE_INFINITY : max;
+            this.minNonZero = Double.isNaN(minNonZero) ? 0 : minNonZero;
+            this.integral = integral && this.max <= MAX_EXACT_INTEGER;
+        }
+
+        /** @return true if the sub tree is always finite (never infinity or NaN) */
+        boolean isFinite() {
+            return max < Double.POSITIVE_INFINITY;
+        }
+
+        /** @return true if the sub tree is the constant value */
+        boolean isConstant(double value) {
+            return node.getValue() instanceof Constant && ((Constant) node.getValue()).getValue() == value;
+        }
+    }
+
+
+    /**
+     * The max value of a terminal, all the terminals are counts of cells or numbers on the board.
+     * Most of them can NOT be more than the amount of the cells, but the
+     * countEmptyCellsInSquare_ThatNotContainsNum terminal of {@link Terminal} steps 3 cells
+     * on every board, so on a board bigger than 9x9 he visits the same square more than once,
+     * and he can count up to ceil(N/3)^2 squares of N cells.
+     */
+    private final double maxTerminal;
+
+
+    /**
+     * Create a simplifier for trees that play on a board with the gaven dimensions.
+     * @param dimensions is the board dimensions (9 for 9x9 board).
+     */
+    TreeSimplifier(int dimensions) {
+        final double squareVisits = Math.ceil(dimensions / 3.0);
+        this.maxTerminal = Math.max((double) dimensions * dimensions, squareVisits * squareVisits * dimensions);
+    }
+
+
+    /**
+     * Simplify the gaven tree into a new tree that return exactly the same values.
+     * The gaven tree is NOT changed.
+     * @param root is the root of the tree that we want to simplify.
+     * @return the root of the new simplified tree.
+     */
+    Node<TerminalOrPrimitive> simplify(Node<TerminalOrPrimitive> root) {
+        return simplifyNode(root).node;
+    }
+
+
+    /**
+     * Simplify the sub tree in a recursive way, first the children and then the current node.
+     * @param node is the node that we reach in the recursive calling.
+     * @return the simplified sub tree with his bounds.
+     */
+    private Bounds simplifyNode(Node<TerminalOrPrimitive> node) {
+        TerminalOrPrimitive value = node.getValue();
+        if (value instanceof Constant)
+            return constant(((Constant) value).getValue());
+        if (!value.isPrimitive())
+            return new Bounds(new Node<>(value.clone()), maxTerminal, 1, true);
+
+        String operation = value.getOperationName();
+        Bounds left = simplifyNode(node.getLeft());
+        Bounds right = simplifyNode(node.getRight());
+
+        if (left.node.getValue() instanceof Constant && right.node.getValue() instanceof Constant)
+            return constant(primitive(operation, left, right).node.getValue().run(0, 0, 0, null, null));
+
+        switch (operation) {
+            case "Plus":
+                if (left.isConstant(0))
+                    return right;
+                if (right.isConstant(0))
+                    return left;
+                if (sameTree(left.node, right.node))
+                    return primitive("Multi", left, constant(2));
+                break;
+
+            case "Minus":
+                if (right.isConstant(0))
+                    return left;
+                if (left.isConstant(0))
+                    return right;
+                if (left.isFinite() && sameTree(left.node, right.node))
+                    return constant(0);
+                break;
+
+            case "Multi":
+                if ((left.isConstant(0) && right.isFinite()) || (right.isConstant(0) && left.isFinite()))
+                    return constant(0);
+                if (left.isConstant(1))
+                    return right;
+                if (right.isConstant(1))
+                    return left;
+                break;
+
+            case "div":
+                if (right.isConstant(0) || right.isConstant(1))
+                    return left;
+                if (left.isConstant(0) && right.isFinite())
+                    return constant(0);
+                break;
+
+            case "Mod":
+                if (right.isConstant(0))
+                    return left;
+                if (left.isConstant(0) && right.isFinite())
+                    return constant(0);
+                if (left.isFinite() && sameTree(left.node, right.node))
+                    return constant(0);
+                if (left.integral && right.isConstant(1))
+                    return constant(0);
+                break;
+
+            case "Maximum":
+                if (sameTree(left.node, right.node) || left.isConstant(0))
+                    return right;
+                if (right.isConstant(0) && left.isFinite())
+                    return left;
+                break;
+
+            case "Minimum":
+                if (sameTree(left.node, right.node))
+                    return right;
+                if (right.isConstant(0))
+                    return right;
+                if (left.isConstant(0) && right.isFinite())
+                    return left;
+                break;
+        }
+        return primitive(operation, left, right);
+    }
+
+
+    /**
+     * Create a constant node with his bounds.
+     * @param value is the value of the constant.
+     * @return the constant node with his bounds.
+     */
+    private static Bounds constant(double value) {
+        return new Bounds(new Node<>(new Constant(value)), value,
+                value != 0 ? value : Double.POSITIVE_INFINITY, value == Math.rint(value));
+    }
+
+
+    /**
+     * Create a primitive node above the gaven simplified children, and calculate his bounds from
+     * the bounds of the children according to the semantics of the operation in {@link Primitive}.
+     * @param operation is the operation name of the primitive.
+     * @param left is the simplified left child.
+     * @param right is the simplified right child.
+     * @return the primitive node with his bounds.
+     */
+    private static Bounds primitive(String operation, Bounds left, Bounds right) {
+        Primitive primitive = new Primitive(operation);
+        primitive.setLeft(left.node);
+        primitive.setRight(right.node);
+        Node<TerminalOrPrimitive> node = new Node<>(left.node, right.node, primitive);
+
+        if (!left.isFinite() || !right.isFinite())
+            return new Bounds(node, Double.POSITIVE_INFINITY, 0, false);
+
+        final boolean integral = left.integral && right.integral;
+        final double minNonZero = Math.min(left.minNonZero, right.minNonZero);
+        switch (operation) {
+            case "Plus":
+                return new Bounds(node, left.max + right.max, minNonZero, integral);
+            case "Minus":
+                return new Bounds(node, Math.max(left.max, right.max),
+                        integral ? 1 : Double.MIN_VALUE, integral);
+            case "Multi":
+                return new Bounds(node, left.max * right.max, left.minNonZero * right.minNonZero, integral);
+            case "div":
+                /* x / y when y is NOT zero, x otherwise */
+                double max = left.max == 0 ? 0 : Math.max(left.max, left.max / right.minNonZero);
+                return new Bounds(node, max, Math.min(left.minNonZero, left.minNonZero / right.max), false);
+            case "Mod":
+                /* |x % y| <= |x|, and x when y is zero */
+                return new Bounds(node, left.max, integral ? 1 : Double.MIN_VALUE, integral);
+            case "Maximum":
+                return new Bounds(node, Math.max(left.max, right.max), minNonZero, integral);
+            case "Minimum":
+                return new Bounds(node, Math.min(left.max, right.max), minNonZero, integral);
+            default:
+                throw new RuntimeException("Operation is Not supported, you should add it here");
+        }
+    }
+
+
+    /**
+     * Check if the two sub trees are the same, the same operations in the same places, in a recursive way.
+     * @param first is the node of the first tree that we reach in the recursive calling.
+     * @param second is the node of the second tree that we reach in the recursive calling.
+     * @return true if the two sub trees are the same, false otherwise.
+     */
+    private static boolean sameTree(Node<TerminalOrPrimitive> first, Node<TerminalOrPrimitive> second) {
+        if (first == null || second == null)
+            return first == second;
+        return first.getValue().getClass() == second.getValue().getClass()
+                && first.getValue().getOperationName().equals(second.getValue().getOperationName())
+                && sameTree(first.getLeft(), second.getLeft())
+                && sameTree(first.getRight(), second.getRight());
+    }
+}
@@ -1,11 +1,15 @@
 package sudokuGame;
 
+import java.util.SplittableRandom;
+
 /**
  * {@code Variable} interface represent the basic operations in the evolution
  * that every individual should able to apply them, and this operation is crossover
  * and mutate.
  * Without these operation can't be evolution, so every player (individual)
- * should implement {@link #crossover(Individual)} {@link #mutate()} methods.
+ * should implement {@link #crossover(Individual, SplittableRandom)} {@link #mutate(SplittableRandom)} methods.
+ * The random numbers are drawn from the gaven random stream, so the same stream (the same seed)
+ * always create the same individuals.
  *
  * @see <a href="https://en.wikipedia.org/wiki/Genetic_programming">Genetic Programming</a>
  * @see <a href="https://en.wikipedia.org/wiki/Mutation">Mutation</a>
@@ -17,16 +21,18 @@ public interface Variable {
     /**
      * Represent the mutation operation that can happen in genome.
      * @see <a href="https://en.wikipedia.org/wiki/Mutation">Mutation</a>
+     * @param random is the random stream that we draw the change from.
      * @return a new mutated (player) individual.
      */
-	Individual mutate();
+	Individual mutate(SplittableRandom random);
 
 
     /**
      * Represent the crossover (or crossing over) that can happen between chromosomes.
      * @see <a href="https://en.wikipedia.org/wiki/Chromosomal_crossover">Chromosomal crossover</a>
      * @param other is the individual that we want to apply crossover with them.
+     * @param random is the random stream that we draw the crossover points from.
      * @return a new recombinant individual as result of the crossover.
      */
-	Individual crossover(Individual other);
+	Individual crossover(Individual other, SplittableRandom random);
 }